@@ -1,9 +1,7 @@
 package com.notjuststudio.engine2dgame.control;
 
-import com.notjuststudio.engine2dgame.util.Parser;
-import org.python.core.PyException;
+import org.python.core.Py;
 import org.python.core.PyObject;
-import org.python.util.PythonInterpreter;
 
 import java.util.*;
 
@@ -12,60 +10,47 @@ import java.util.*;
  */
 public class Animation {
 
-    Map<String, Set<TimeKey>> keys = new HashMap<>();
-//    List<String> keysPermanent = new ArrayList<>();
-    Map<String, Entity> entities = new HashMap<>();
+    //a clip of its own, keys can still be added while it plays
+    final AnimationClip clip;
+    final AnimationPlayer player;
 
-    float time = 0;
-    float endTime = 0;
-    boolean wasPlayed = false;
     PyObject list = null;
 
-    int interpolationType = 0;
-
     public static final int
-            LINEAR = 0;
-
-    {
-        PyEngine.put(Parser.toString(this), this);
-        PyEngine.exec(Parser.toString(this) + ".list=List()");
-    }
+            LINEAR = AnimationClip.LINEAR,
+            STEP = AnimationClip.STEP,
+            CUBIC = AnimationClip.CUBIC,
+            EASE_IN = AnimationClip.EASE_IN,
+            EASE_OUT = AnimationClip.EASE_OUT,
+            EASE_IN_OUT = AnimationClip.EASE_IN_OUT,
+            EASE_IN_CUBIC = AnimationClip.EASE_IN_CUBIC,
+            EASE_OUT_CUBIC = AnimationClip.EASE_OUT_CUBIC,
+            EASE_IN_OUT_CUBIC = AnimationClip.EASE_IN_OUT_CUBIC,
+            EASE_IN_OUT_SINE = AnimationClip.EASE_IN_OUT_SINE;
 
     public Animation(float endTime) {
-        this.endTime = endTime;
+        this.clip = new AnimationClip(endTime);
+        this.player = new AnimationPlayer(clip, false);
     }
 
     public Animation(float endTime, Entity entity) {
-        this.endTime = endTime;
+        this(endTime);
         this.addEntity(entity);
     }
 
     public Animation step(float time) {
-        this.time = Math.max(0, this.time + time);
-        while (this.time >= this.endTime) {
-            this.time -= this.endTime;
-            wasPlayed = true;
-        }
-        return this.update();
+        player.step(time);
+        return this;
     }
 
-//    public Animation draw() {
-//        if (this.drawable != null)
-//            draw(this.drawable);
-//        return this;
-//    }
-//
-//    public Animation draw(Draw.Drawable drawable) {
-//        drawable.draw(this.getTimeKey(time));
-//        return this;
-//    }
-
     public Animation addEntity(Entity entity) {
         return addEntity("default", entity);
     }
 
     public Animation addEntity(String key, Entity entity) {
-        entities.put(key, entity);
+        player.addEntity(key, entity);
+        if (list != null)
+            list.__setattr__(key, Py.java2py(entity));
         return this;
     }
 
@@ -74,111 +59,96 @@ public class Animation {
     }
 
     public Entity getEntity(String key) {
-        return entities.get(key);
+        return player.getEntity(key);
     }
 
     public Animation addParameter(String key, float value) {
         return this.addParameter(0, key, value);
     }
 
+    /**
+     * Adds a key frame, a second key at the same time replaces the value.
+     */
     public Animation addParameter(float time, String key, float value) {
-        Set<TimeKey> set = keys.get(key);
-        if (set == null)
-            keys.put(key, set = new TreeSet<>());
-
-        TimeKey result = new TimeKey();
-        result.time = Math.max(0, time);
-        result.value = value;
-        set.add(result);
+        clip.addParameter(time, key, value);
+        return this.update();
+    }
+
+    public Animation setInterpolation(int type) {
+        clip.setInterpolation(type);
+        return this.update();
+    }
+
+    public Animation setInterpolation(String key, int type) {
+        clip.setInterpolation(key, type);
         return this.update();
     }
 
     public Animation update() {
-        if (!this.entities.isEmpty()) {
-            for (Map.Entry<String, Entity> entry : entities.entrySet()) {
-                PyEngine.put("__tmp__", entry.getValue());
-                PyEngine.exec(Parser.toString(this) + ".list." + entry.getKey() + "=__tmp__");
-            }
-
-            for (Map.Entry<String, Float> entry : this.getTimeKey().entrySet()) {
-                String key = entry.getKey();
-                boolean flag = false;
-                for (Map.Entry<String, Entity> entity : entities.entrySet()) {
-                    if (key.startsWith(entity.getKey())) {
-                        flag = true;
-                        break;
-                    }
-                }
-                if (!flag)
-                    key = "default." + key;
-                PyEngine.exec(Parser.toString(this) + ".list." + key + "=" + entry.getValue());
-            }
-        }
+        player.update();
         return this;
     }
 
     public Animation resetTime() {
-        this.time = 0;
+        player.resetTime();
         return this;
     }
 
     public Map<String, Float> getTimeKey() {
-        return this.getTimeKey(this.time);
+        return this.getTimeKey(getTime());
     }
 
+    /**
+     * Allocates a map, use {@link #sample(float, float[])} for playback.
+     */
     public Map<String, Float> getTimeKey(float time) {
+        float[] values = clip.sample(time, new float[clip.getKeyCount()]);
         Map<String, Float> result = new HashMap<>();
-        keysLoop:
-        for (Map.Entry<String, Set<TimeKey>> entry : keys.entrySet()) {
-            Iterator<TimeKey> iterator = entry.getValue().iterator();
-            TimeKey first =  iterator.next();
-            if (first.time >= time) {
-                result.put(entry.getKey(), first.value);
-                continue;
-            }
-            while (iterator.hasNext()) {
-                TimeKey tmp = iterator.next();
-                if (tmp.time == time) {
-                    result.put(entry.getKey(), tmp.value);
-                    continue keysLoop;
-                }
-                if (tmp.time > time) {
-                    switch (interpolationType) {
-                        case LINEAR:
-                            result.put(entry.getKey(), first.value + (tmp.value - first.value) * (time - first.time)/(tmp.time - first.time));
-                            continue keysLoop;
-                    }
-                } else {
-                    first = tmp;
-                }
-            }
-            result.put(entry.getKey(), first.value);
-        }
+        for (int i = 0; i < values.length; i++)
+            result.put(clip.getKey(i), values[i]);
         return result;
     }
 
-    class TimeKey implements Comparable<TimeKey>{
+    /**
+     * Writes the value of every key at the time into out, indexed like {@link #getKey(int)}.
+     */
+    public float[] sample(float time, float[] out) {
+        return clip.sample(time, out);
+    }
 
-        float time;
-        float value;
+    public int getKeyCount() {
+        return clip.getKeyCount();
+    }
 
-        @Override
-        public int compareTo(TimeKey o) {
-            if (time == o.time)
-                return 0;
-            return time > o.time ? 1 : -1;
-        }
+    public String getKey(int index) {
+        return clip.getKey(index);
+    }
+
+    public AnimationClip getClip() {
+        return clip;
+    }
+
+    public AnimationPlayer getPlayer() {
+        return player;
     }
 
     public float getTime() {
-        return time;
+        return player.getTime();
     }
 
     public boolean isWasPlayed() {
-        return wasPlayed;
+        return player.isWasPlayed();
     }
 
+    /**
+     * The entities as attributes of a python object, made on first use.
+     */
     public PyObject getList() {
+        if (list == null) {
+            list = PyEngine.eval("List()");
+            for (Map.Entry<String, Entity> entry : player.entities.entrySet())
+                list.__setattr__(entry.getKey(), Py.java2py(entry.getValue()));
+        }
         return list;
     }
 
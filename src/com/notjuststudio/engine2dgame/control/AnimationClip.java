@@ -0,0 +1,108 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class AnimationClip {
+
+    public static final int
+            LINEAR = 0,
+            STEP = 1,
+            CUBIC = 2,
+            EASE_IN = 3,
+            EASE_OUT = 4,
+            EASE_IN_OUT = 5,
+            EASE_IN_CUBIC = 6,
+            EASE_OUT_CUBIC = 7,
+            EASE_IN_OUT_CUBIC = 8,
+            EASE_IN_OUT_SINE = 9;
+
+    //in the order the keys were added, players index their bindings and cursors the same way
+    final List<Track> tracks = new ArrayList<>();
+    private final Map<String, Track> trackMap = new HashMap<>();
+
+    float endTime;
+    int interpolationType = LINEAR;
+    //set once a player uses the clip, a shared clip can not change under its players
+    private boolean frozen = false;
+    //changes of an unshared clip, players rebind when it differs from theirs
+    int version = 0;
+
+    public AnimationClip(float endTime) {
+        this.endTime = endTime;
+    }
+
+    public AnimationClip addParameter(String key, float value) {
+        return addParameter(0, key, value);
+    }
+
+    /**
+     * Adds a key frame, a second key at the same time replaces the value.
+     */
+    public AnimationClip addParameter(float time, String key, float value) {
+        checkFrozen();
+        Track track = trackMap.get(key);
+        if (track == null) {
+            trackMap.put(key, track = new Track(key));
+            tracks.add(track);
+        }
+        track.add(Math.max(0, time), value);
+        version++;
+        return this;
+    }
+
+    public AnimationClip setInterpolation(int type) {
+        checkFrozen();
+        interpolationType = type;
+        return this;
+    }
+
+    public AnimationClip setInterpolation(String key, int type) {
+        checkFrozen();
+        Track track = trackMap.get(key);
+        if (track != null)
+            track.interpolation = type;
+        return this;
+    }
+
+    private void checkFrozen() {
+        if (frozen)
+            throw new IllegalStateException("Animation clip is in use, create a new one");
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    public float getEndTime() {
+        return endTime;
+    }
+
+    public int getKeyCount() {
+        return tracks.size();
+    }
+
+    public String getKey(int index) {
+        return tracks.get(index).key;
+    }
+
+    /**
+     * Writes the value of every key at the time into out, indexed like {@link #getKey(int)}.
+     */
+    public float[] sample(float time, float[] out) {
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            out[i] = sample(track, track.find(time, -1), time);
+        }
+        return out;
+    }
+
+    float sample(Track track, int segment, float time) {
+        return track.sample(segment, time, track.interpolation < 0 ? interpolationType : track.interpolation);
+    }
+}
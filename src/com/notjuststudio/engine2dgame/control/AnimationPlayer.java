@@ -0,0 +1,288 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class AnimationPlayer {
+
+    public static final int
+            LOOP = 0,
+            ONCE = 1,
+            PING_PONG = 2;
+
+    //entity properties set without going through the interpreter
+    private static final Map<String, Setter> SETTERS = new HashMap<>();
+
+    static {
+        SETTERS.put("x", Entity::setX);
+        SETTERS.put("y", Entity::setY);
+        SETTERS.put("sprite_angle", Entity::setSprite_angle);
+        SETTERS.put("depth", Entity::setDepth);
+    }
+
+    final AnimationClip clip;
+    final Map<String, Entity> entities = new HashMap<>();
+
+    //while playing the time and speed live in the Animator arrays
+    int slot = -1;
+    private float time = 0;
+    private float speed = 1;
+    private int mode = LOOP;
+    boolean wasPlayed = false;
+
+    //per track of the clip, rebuilt after the clip or the entities change
+    private Binding[] bindings = new Binding[0];
+    private int[] cursors = new int[0];
+    private int boundVersion = -1;
+
+    public AnimationPlayer(AnimationClip clip) {
+        this(clip, true);
+    }
+
+    public AnimationPlayer(AnimationClip clip, Entity entity) {
+        this(clip, true);
+        addEntity(entity);
+    }
+
+    AnimationPlayer(AnimationClip clip, boolean share) {
+        this.clip = clip;
+        if (share)
+            clip.freeze();
+    }
+
+    public AnimationPlayer addEntity(Entity entity) {
+        return addEntity("default", entity);
+    }
+
+    public AnimationPlayer addEntity(String key, Entity entity) {
+        Entity previous = entities.put(key, entity);
+        if (slot >= 0) {
+            if (previous != null)
+                previous.removePlayer(this);
+            entity.addPlayer(this);
+        }
+        boundVersion = -1;
+        return this;
+    }
+
+    public Entity getEntity() {
+        return getEntity("default");
+    }
+
+    public Entity getEntity(String key) {
+        return entities.get(key);
+    }
+
+    public AnimationClip getClip() {
+        return clip;
+    }
+
+    /**
+     * Advances with every simulation step until stopped, a ONCE player stops at the end of the clip.
+     */
+    public AnimationPlayer play() {
+        if (slot < 0) {
+            Animator.add(this);
+            for (Entity entity : entities.values())
+                entity.addPlayer(this);
+        }
+        return this;
+    }
+
+    public AnimationPlayer stop() {
+        if (slot >= 0) {
+            Animator.remove(this);
+            for (Entity entity : entities.values())
+                entity.removePlayer(this);
+        }
+        return this;
+    }
+
+    public boolean isPlaying() {
+        return slot >= 0;
+    }
+
+    /**
+     * Advances by hand, for a player that is not playing.
+     */
+    public AnimationPlayer step(float delta) {
+        float next = advance(getTime(), delta * getSpeed(), clip.endTime, mode);
+        if (next < 0) {
+            wasPlayed = true;
+            next = -next - 1;
+        }
+        setTime(next);
+        return update();
+    }
+
+    /**
+     * Time after delta, a wrapped or finished time comes back as -time - 1.
+     */
+    static float advance(float time, float delta, float endTime, int mode) {
+        if (endTime <= 0)
+            return -1;
+        time = Math.max(0, time + delta);
+        switch (mode) {
+            case ONCE:
+                return time >= endTime ? -endTime - 1 : time;
+            case PING_PONG:
+                //there and back is one period
+                if (time < 2 * endTime)
+                    return time;
+                return -(time % (2 * endTime)) - 1;
+            default:
+                if (time < endTime)
+                    return time;
+                return -(time % endTime) - 1;
+        }
+    }
+
+    /**
+     * Applies the clip at the current time to the entities.
+     */
+    public AnimationPlayer update() {
+        apply(getTime());
+        return this;
+    }
+
+    void apply(float time) {
+        if (entities.isEmpty())
+            return;
+        if (boundVersion != clip.version)
+            bind();
+        if (mode == PING_PONG && time > clip.endTime)
+            time = 2 * clip.endTime - time;
+        for (int i = 0; i < bindings.length; i++) {
+            if (bindings[i] == null)
+                continue;
+            Track track = clip.tracks.get(i);
+            int segment = cursors[i] = track.find(time, cursors[i]);
+            bindings[i].apply(clip.sample(track, segment, time));
+        }
+    }
+
+    /**
+     * Resolves every key once, "entity.path" or a path on the default entity.
+     */
+    private void bind() {
+        bindings = new Binding[clip.tracks.size()];
+        cursors = new int[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            String key = clip.tracks.get(i).key;
+            int dot = key.indexOf('.');
+            String entityKey = "default";
+            String path = key;
+            if (dot > 0 && entities.containsKey(key.substring(0, dot))) {
+                entityKey = key.substring(0, dot);
+                path = key.substring(dot + 1);
+            }
+            Entity entity = entities.get(entityKey);
+            if (entity == null) {
+                PyEngine.err.println("Animation key " + key + " has no entity");
+                continue;
+            }
+            Setter setter = SETTERS.get(path);
+            bindings[i] = setter != null ? new JavaBinding(entity, setter) : new PythonBinding(entity, path.split("\\."));
+        }
+        boundVersion = clip.version;
+    }
+
+    public float getTime() {
+        return slot >= 0 ? Animator.times[slot] : time;
+    }
+
+    public AnimationPlayer setTime(float time) {
+        if (slot >= 0)
+            Animator.times[slot] = time;
+        else
+            this.time = time;
+        return this;
+    }
+
+    public float getSpeed() {
+        return slot >= 0 ? Animator.speeds[slot] : speed;
+    }
+
+    public AnimationPlayer setSpeed(float speed) {
+        this.speed = speed;
+        if (slot >= 0)
+            Animator.speeds[slot] = speed;
+        return this;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    public AnimationPlayer setMode(int mode) {
+        this.mode = mode;
+        if (slot >= 0)
+            Animator.modes[slot] = mode;
+        return this;
+    }
+
+    public AnimationPlayer resetTime() {
+        return setTime(0);
+    }
+
+    public boolean isWasPlayed() {
+        return wasPlayed;
+    }
+
+    //the Animator hands the state back when the player stops
+    void store(float time) {
+        this.time = time;
+        slot = -1;
+    }
+
+    private interface Setter {
+        void set(Entity entity, float value);
+    }
+
+    private interface Binding {
+        void apply(float value);
+    }
+
+    private static class JavaBinding implements Binding {
+        private final Entity entity;
+        private final Setter setter;
+
+        private JavaBinding(Entity entity, Setter setter) {
+            this.entity = entity;
+            this.setter = setter;
+        }
+
+        @Override
+        public void apply(float value) {
+            setter.set(entity, value);
+        }
+    }
+
+    //any other attribute, set through the python object of the entity
+    private static class PythonBinding implements Binding {
+        private final PyObject target;
+        private final String[] path;
+
+        private PythonBinding(Entity entity, String[] path) {
+            this.target = Py.java2py(entity);
+            this.path = path;
+            //attribute lookups compare interned names
+            for (int i = 0; i < path.length; i++)
+                path[i] = path[i].intern();
+        }
+
+        @Override
+        public void apply(float value) {
+            PyObject object = target;
+            for (int i = 0; i < path.length - 1; i++)
+                object = object.__getattr__(path[i]);
+            object.__setattr__(path[path.length - 1], Py.newFloat(value));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.Arrays;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class Animator {
+
+    //the playing players, packed, a player knows its slot
+    private static AnimationPlayer[] players = new AnimationPlayer[64];
+    static float[] times = new float[64];
+    static float[] speeds = new float[64];
+    static int[] modes = new int[64];
+    private static float[] endTimes = new float[64];
+    private static boolean[] finished = new boolean[64];
+    private static int count = 0;
+    //stops during the pass are packed away after it
+    private static boolean updating = false;
+    private static boolean hasStopped = false;
+
+    static void add(AnimationPlayer player) {
+        if (count == players.length) {
+            int size = count * 2;
+            players = Arrays.copyOf(players, size);
+            times = Arrays.copyOf(times, size);
+            speeds = Arrays.copyOf(speeds, size);
+            modes = Arrays.copyOf(modes, size);
+            endTimes = Arrays.copyOf(endTimes, size);
+            finished = Arrays.copyOf(finished, size);
+        }
+        players[count] = player;
+        times[count] = player.getTime();
+        speeds[count] = player.getSpeed();
+        modes[count] = player.getMode();
+        endTimes[count] = player.clip.endTime;
+        finished[count] = false;
+        player.slot = count++;
+    }
+
+    static void remove(AnimationPlayer player) {
+        final int slot = player.slot;
+        player.store(times[slot]);
+        if (updating) {
+            players[slot] = null;
+            hasStopped = true;
+        } else {
+            removeSlot(slot);
+        }
+    }
+
+    //the last player takes the slot
+    private static void removeSlot(int slot) {
+        final int last = --count;
+        if (slot != last) {
+            players[slot] = players[last];
+            times[slot] = times[last];
+            speeds[slot] = speeds[last];
+            modes[slot] = modes[last];
+            endTimes[slot] = endTimes[last];
+            finished[slot] = finished[last];
+            if (players[slot] != null)
+                players[slot].slot = slot;
+        }
+        players[last] = null;
+    }
+
+    /**
+     * Advances every playing player, then applies them, called once per simulation step.
+     */
+    static void update(float delta) {
+        final int size = count;
+        for (int i = 0; i < size; i++) {
+            float time = AnimationPlayer.advance(times[i], delta * speeds[i], endTimes[i], modes[i]);
+            //wrapped or at the end
+            finished[i] = time < 0;
+            times[i] = time < 0 ? -time - 1 : time;
+        }
+
+        updating = true;
+        try {
+            for (int i = 0; i < size; i++) {
+                AnimationPlayer player = players[i];
+                if (player == null)
+                    continue;
+                if (finished[i])
+                    player.wasPlayed = true;
+                player.apply(times[i]);
+                if (finished[i] && modes[i] == AnimationPlayer.ONCE && players[i] == player)
+                    player.stop();
+            }
+        } finally {
+            updating = false;
+        }
+
+        if (hasStopped) {
+            hasStopped = false;
+            for (int i = count - 1; i >= 0; i--)
+                if (players[i] == null)
+                    removeSlot(i);
+        }
+    }
+
+    static int getCount() {
+        return count;
+    }
+
+    static void clear() {
+        while (count > 0)
+            players[count - 1].stop();
+    }
+}
@@ -0,0 +1,143 @@
+package com.notjuststudio.engine2dgame.control;
+
+import com.notjuststudio.engine2dgame.util.Container;
+import com.notjuststudio.engine2dgame.util.ImageData;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class AssetLoader {
+
+    static final String[] TYPES = {"Sprite", "Background", "Font", "Entity", "Room"};
+
+    //nanoseconds of gl work per loading frame
+    static long uploadBudget = 8_000_000;
+
+    interface Source {
+        Container read(String type, int index, String id);
+    }
+
+    private static ExecutorService decoder;
+
+    //work that has to run on the gl thread, each entry holds its container until it has run
+    private static final Queue<Runnable> uploads = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger decoded = new AtomicInteger();
+    private static volatile Throwable failure;
+
+    private static int total = 0;
+    private static int uploaded = 0;
+
+    static void start(Container gameKeeper, Source source) {
+        //reading a container already decodes its images, so reads share the pool bounded by the cores
+        decoder = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), factory("Asset decoder"));
+
+        for (String type : TYPES) {
+            final String[] keys = gameKeeper.getStringArray(type);
+            if (keys == null)
+                continue;
+            for (int i = 0; i < keys.length; i++) {
+                final String id = keys[i];
+                final int index = i;
+                total++;
+                CompletableFuture
+                        .supplyAsync(() -> decode(type, id, source.read(type, index, id),
+                                () -> source.read(type, index, id).getImageData(Container.SOURCE)), decoder)
+                        .whenComplete((upload, error) -> {
+                            if (error != null) {
+                                if (failure == null)
+                                    failure = error;
+                                return;
+                            }
+                            decoded.incrementAndGet();
+                            uploads.add(upload);
+                        });
+            }
+        }
+    }
+
+    //reload reads and decodes the image again, for textures that were evicted
+    private static Runnable decode(String type, String id, Container container, Supplier<ImageData> reload) {
+        switch (type) {
+            case "Sprite": {
+                final Sprite sprite = Sprite.decodeSprite(container, reload);
+                return () -> Sprite.loadSprite(id, sprite);
+            }
+            case "Background": {
+                final Background background = Background.decodeBackground(container, reload);
+                return () -> Background.loadBackground(id, background);
+            }
+            case "Font": {
+                final ImageData image = container.getImageData(Container.SOURCE);
+                final String meta = container.getString(Container.META);
+                return () -> TextFont.loadFont(id, image, meta);
+            }
+            case "Entity": {
+                final Entity.EntityTemplate template = Entity.compileEntity(container);
+                return () -> Entity.loadEntity(id, template);
+            }
+            case "Room":
+                return () -> Room.loadRoom(id, container);
+            default:
+                throw new IllegalArgumentException("Unknown asset type " + type);
+        }
+    }
+
+    /**
+     * Runs queued gl work until the budget is spent, returns true once every asset is loaded.
+     */
+    static boolean upload(long budget) {
+        if (failure != null)
+            throw new RuntimeException("Failed to load assets", failure);
+        final long start = System.nanoTime();
+        Runnable upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.run();
+            uploaded++;
+            if (System.nanoTime() - start >= budget)
+                break;
+        }
+        return isDone();
+    }
+
+    static boolean isDone() {
+        return uploaded == total;
+    }
+
+    static int getTotal() {
+        return total;
+    }
+
+    static int getDecoded() {
+        return decoded.get();
+    }
+
+    static int getUploaded() {
+        return uploaded;
+    }
+
+    static float getProgress() {
+        //decoding and uploading weigh the same
+        return total == 0 ? 1 : (decoded.get() + uploaded) / (2f * total);
+    }
+
+    static void shutdown() {
+        if (decoder != null)
+            decoder.shutdownNow();
+        decoder = null;
+        uploads.clear();
+    }
+
+    private static ThreadFactory factory(String name) {
+        final AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,15 +1,15 @@
 package com.notjuststudio.engine2dgame.control;
 
 import com.notjuststudio.engine2dgame.util.Container;
-import com.notjuststudio.engine2dgame.util.ImageLoader;
+import com.notjuststudio.engine2dgame.util.ImageData;
 import com.notjuststudio.engine2dgame.util.Parser;
 import com.notjuststudio.fpnt.FPNTDecoder;
 import org.lwjgl.opengl.GL11;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Created by Georgy on 03.05.2017.
@@ -20,26 +20,64 @@ public class Background {
 
     boolean stretched;
 
-    BufferedImage image;
-    int textureID;
+    int width;
+    int height;
+    TextureManager.Texture texture = TextureManager.NONE;
 
-    private Background(Container tmp) {
+    //decoded pixels waiting for the gl thread
+    private ImageData image;
+    private Supplier<ImageData> source;
+
+    //decodes only, safe to call off the gl thread
+    private Background(Container tmp, Supplier<ImageData> source) {
+        this.source = source;
         stretched = tmp.getBoolean(Container.STRETCHED);
 
-        image = tmp.getBufferedImage(Container.SOURCE);
-        if (image == null)
-            textureID = 0;
-        else
-            textureID = Loader.loadTexture(image, GL11.GL_REPEAT);
+        image = tmp.getImageData(Container.SOURCE);
+        if (image != null) {
+            width = image.width;
+            height = image.height;
+        }
+    }
+
+    private void upload() {
+        if (image != null && Game.headless) {
+            image.release();
+        } else if (image != null && source == null) {
+            //nothing to decode it from again
+            texture = TextureManager.create(Loader.loadTexture(image, GL11.GL_REPEAT), width, height);
+        } else if (image != null) {
+            final Supplier<ImageData> source = this.source;
+            texture = TextureManager.create(width, height, () -> Loader.loadTexture(source.get(), GL11.GL_REPEAT));
+            //past the budget it waits for the first room that shows it
+            if (TextureManager.fits(texture.getBytes()))
+                texture.setResident(Loader.loadTexture(image, GL11.GL_REPEAT));
+            else
+                image.release();
+        }
+        image = null;
+        source = null;
     }
 
     static void loadBackground(String id, File filePath) {
         final Container tmp = FPNTDecoder.read(filePath, new Container());
-        backgroundMap.put(id, new Background(tmp));
+        loadBackground(id, new Background(tmp, () -> FPNTDecoder.read(filePath, new Container()).getImageData(Container.SOURCE)));
     }
 
     static void loadBackground(String id, Container container) {
-        backgroundMap.put(id, new Background(container));
+        loadBackground(id, new Background(container, container.getImageSource(Container.SOURCE)));
+    }
+
+    /**
+     * The source decodes the image again whenever its texture has to be reloaded.
+     */
+    static Background decodeBackground(Container container, Supplier<ImageData> source) {
+        return new Background(container, source);
+    }
+
+    static void loadBackground(String id, Background decoded) {
+        decoded.upload();
+        backgroundMap.put(id, decoded);
     }
 
     static Background getBackground(String id) {
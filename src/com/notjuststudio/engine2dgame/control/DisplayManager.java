@@ -5,33 +5,27 @@ import org.lwjgl.LWJGLException;
 import org.lwjgl.Sys;
 import org.lwjgl.opengl.*;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 import java.nio.ByteBuffer;
 
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.util.List;
 
 /**
  * Created by Georgy on 31.03.2017.
  */
 public class DisplayManager {
 
-    private static int countOfDelta = 0;
-    private static int maxCountOfDelta = 100;
-    private static List<Float> listOfDelta = new ArrayList<>(maxCountOfDelta);
-
     static int width;
     static int height;
 
-    private static long lastFrameTime;
     static float delta;
 
     private static boolean closeRequest = false;
-    private static final ContextAttribs attribs;
-    private static final DisplayMode[] modes;
+    //set up in init, loading the class must not touch the display
+    private static ContextAttribs attribs;
+    private static DisplayMode[] modes;
     private static DisplayMode fullscreenMode;
     private static PixelFormat format;
 
@@ -42,7 +36,7 @@ public class DisplayManager {
     private static Setting currentSetting = new Setting();
     private static Setting newSetting = new Setting();
 
-    static {
+    private static void initModes() {
         attribs = new ContextAttribs(3, 2).withForwardCompatible(true).withProfileCore(true);
         DisplayMode[] tmp;
         try {
@@ -59,6 +53,7 @@ public class DisplayManager {
     }
 
     static void init(int width, int height, String title, BufferedImage icon, int state) {
+        initModes();
 
         DisplayManager.width = width;
         DisplayManager.height = height;
@@ -81,6 +76,8 @@ public class DisplayManager {
             System.setProperty("org.lwjgl.opengl.Window.undecorated", Boolean.toString(true));
             Display.setDisplayMode(new DisplayMode(0,0));
             Display.create(format, attribs);
+            //a context made again after destroy starts from the gl defaults
+            GLState.invalidate();
             System.setProperty("org.lwjgl.opengl.Window.undecorated", Boolean.toString(false));
 
             GL11.glEnable(GL13.GL_MULTISAMPLE);
@@ -93,18 +90,9 @@ public class DisplayManager {
     }
 
     static void update() {
-//        Display.sync(120);
         Display.update();
-        long currentFrameTime = getCurrentTime();
-        delta = (currentFrameTime - lastFrameTime) / 1000f;
-        lastFrameTime = getCurrentTime();
-
-        if (countOfDelta < maxCountOfDelta) {
-            countOfDelta++;
-        } else {
-            listOfDelta.remove(0);
-        }
-        listOfDelta.add(delta);
+        FrameClock.endFrame();
+        delta = FrameClock.getFrameNanos() / 1e9f;
     }
 
     static void destroy() {
@@ -112,7 +100,7 @@ public class DisplayManager {
     }
 
     public static boolean isCloseRequested() {
-        return Display.isCloseRequested() || closeRequest;
+        return closeRequest || (!Game.headless && Display.isCloseRequested());
     }
 
     static void closeRequest() {
@@ -121,12 +109,12 @@ public class DisplayManager {
 
     static void initLoop() {
         updateDisplaySize();
-        lastFrameTime = getCurrentTime();
+        FrameClock.reset();
     }
 
     static void setSize(int width, int height) {
         try {
-            GL11.glViewport(0, 0, width, height);
+            GLState.viewport(0, 0, width, height);
             Display.setDisplayMode(new DisplayMode(width, height));
         } catch (LWJGLException e) {
             e.printStackTrace();
@@ -134,12 +122,38 @@ public class DisplayManager {
     }
 
     public static float getFPS() {
-        if (listOfDelta.isEmpty()) return 0;
-        return countOfDelta / ((float) listOfDelta.stream().mapToDouble(Float::floatValue).sum());
+        double mean = FrameClock.getMean();
+        return mean == 0 ? 0 : (float) (1e9 / mean);
+    }
+
+    /**
+     * Caps the frame rate, 0 turns the limiter off.
+     */
+    public static void setTargetFPS(int fps) {
+        FrameClock.targetFPS = Math.max(0, fps);
+    }
+
+    public static int getTargetFPS() {
+        return FrameClock.targetFPS;
+    }
+
+    /**
+     * Frame time in milliseconds that the given fraction of recent frames stayed under, 0.99 for the 99th percentile.
+     */
+    public static float getFrameTime(double percentile) {
+        return FrameClock.getPercentile(percentile) / 1e6f;
+    }
+
+    public static float getMeanFrameTime() {
+        return (float) (FrameClock.getMean() / 1e6);
+    }
+
+    public static float getMaxFrameTime() {
+        return FrameClock.getMax() / 1e6f;
     }
 
     public static void resetLastFrameTime() {
-        lastFrameTime = getCurrentTime();
+        FrameClock.reset();
     }
 
     public static long getCurrentTime() {
@@ -160,6 +174,8 @@ public class DisplayManager {
     }
 
     public static void updateDisplaySetting() {
+        if (Game.headless)
+            return;
         if (currentSetting.fullscreenState != newSetting.fullscreenState) {
             try {
                 switch (newSetting.fullscreenState) {
@@ -172,18 +188,21 @@ public class DisplayManager {
                     case WINDOWED_BORDERLESS: {
                         System.setProperty("org.lwjgl.opengl.Window.undecorated", Boolean.toString(true));
                         Display.setDisplayMode(fullscreenMode);
-                        GL11.glViewport(0, 0, fullscreenMode.getWidth(), fullscreenMode.getHeight());
+                        GLState.viewport(0, 0, fullscreenMode.getWidth(), fullscreenMode.getHeight());
                         Display.setFullscreen(false);
                         break;
                     }
                     case FULLSCREEN: {
                         System.setProperty("org.lwjgl.opengl.Window.undecorated", Boolean.toString(false));
                         Display.setDisplayMode(fullscreenMode);
-                        GL11.glViewport(0, 0, fullscreenMode.getWidth(), fullscreenMode.getHeight());
+                        GLState.viewport(0, 0, fullscreenMode.getWidth(), fullscreenMode.getHeight());
                         Display.setFullscreen(true);
                         break;
                     }
                 }
+                //switching may recreate the context, nothing cached is known to hold
+                GLState.invalidate();
+                GLState.viewport(0, 0, Display.getWidth(), Display.getHeight());
             } catch (LWJGLException e) {
                 e.printStackTrace();
             }
@@ -35,21 +35,12 @@ public class Draw {
 
     public static void sprite(float x, float y, float xScale, float yScale, float alpha, Sprite sprite) {
         if (!isDraw) return;
-        Map<String, Float> parameters = new HashMap<>();
-        parameters.put("x", x);
-        parameters.put("y", y);
-        parameters.put("xScale", xScale);
-        parameters.put("yScale", yScale);
-        parameters.put("alpha", alpha);
-        sprite.draw(parameters);
+        sprite.draw(x, y, xScale, yScale, alpha);
     }
 
     public static void text(float x, float y, Text text) {
         if (!isDraw) return;
-        Map<String, Float> parameters = new HashMap<>();
-        parameters.put("x", x);
-        parameters.put("y", y);
-        text.draw(parameters);
+        text.draw(x, y);
     }
 
     static interface Drawable{
@@ -3,15 +3,10 @@ package com.notjuststudio.engine2dgame.control;
 import com.notjuststudio.engine2dgame.util.Container;
 import com.notjuststudio.engine2dgame.util.Parser;
 import com.notjuststudio.fpnt.FPNTDecoder;
-import org.python.core.PyCode;
-import org.python.core.PyException;
-import org.python.core.PyNone;
-import org.python.core.PyString;
+import org.python.core.*;
 
 import java.io.File;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Created by Georgy on 03.04.2017.
@@ -20,17 +15,52 @@ public class Entity implements Comparable<Entity>{
 
     private static Map<String, EntityTemplate> templateMap = new HashMap<>();
 
+    //classes defined at runtime, keyed by their source
+    static final int MAX_RUNTIME_CLASSES = 256;
+    private static final Map<String, PyObject> runtimeClasses = new LinkedHashMap<String, PyObject>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PyObject> eldest) {
+            return size() > MAX_RUNTIME_CLASSES;
+        }
+    };
+
     boolean isInit = false;
 
+    Room room = null;
+    long order = 0;
+
+    //sprite bounds in room coordinates and the grid cells they cover, see SpatialGrid
+    float minX, minY, maxX, maxY;
+    int minColumn, minRow, maxColumn, maxRow;
+    boolean inGrid = false;
+    int visibleStamp = 0;
+    //static layer caching, see StaticLayers
+    StaticLayers.Layer layer = null;
+    long changedFrame = 0;
+    boolean isStatic = false;
+    //false when the hook is the generated pass, the entity is then skipped in that phase
+    boolean hasStepHook = true;
+    boolean hasDrawHook = true;
+    //playing animations bound to the entity, stopped when it goes away
+    private List<AnimationPlayer> players = null;
+    private float boundsAngle = 0;
+    private float boundsSin = 0;
+    private float boundsCos = 1;
+
     Sprite sprite = null;
     private boolean visible = true;
 
-    private float depth = 0;
+    float depth = 0;
 
     private float x = 0;
     private float y = 0;
     private float sprite_angle = 0;
 
+    //state before the last fixed step, rendering interpolates from it
+    private float previousX = 0;
+    private float previousY = 0;
+    private float previousAngle = 0;
+
     public Entity() {}
 
     public static Entity createEntity(PyString init, PyString step, PyString draw, PyString destroy) {
@@ -38,24 +68,14 @@ public class Entity implements Comparable<Entity>{
     }
 
     static Entity createEntity(String init, String step, String draw, String destroy) {
-        PyEngine.exec("class __tmp__(Entity, Entity.Methods):\n" +
-                "  def _init_(self):\n" +
-                (init == null ? "    pass\n" : Parser.stringParser(init, 4)) +
-                "  def _step_(self):\n" +
-                (step == null ? "    pass\n" : Parser.stringParser(step, 4)) +
-                "  def _draw_(self):\n" +
-                (draw == null ? "    pass\n" : Parser.stringParser(draw, 4)) +
-                "  def _destroy_(self):\n" +
-                (destroy == null ? "    pass\n" : Parser.stringParser(destroy, 4)) +
-                "__obj__ = __tmp__()\n" +
-                "del __tmp__");
-
-        Entity result = PyEngine.get("__obj__", Entity.class);
-        try {
-            PyEngine.exec("del __obj__");
-        } catch (PyException e) {
-            PyEngine.err.println("Can't delete __obj__");
-        }
+        final String source = classSource(init, step, draw, destroy);
+        PyObject type = runtimeClasses.get(source);
+        if (type == null)
+            runtimeClasses.put(source, type = PyEngine.defineClass(PyEngine.compile(source)));
+
+        Entity result = instantiate(type);
+        result.hasStepHook = step != null;
+        result.hasDrawHook = draw != null;
 
         return result;
     }
@@ -63,19 +83,17 @@ public class Entity implements Comparable<Entity>{
     static Entity createEntity(float x, float y, String id) {
         EntityTemplate template = templateMap.get(id);
 
-        PyEngine.exec(template.code);
-        Entity result = PyEngine.get("__obj__", Entity.class);
-        try {
-            PyEngine.exec("del __obj__");
-        } catch (PyException e) {
-            PyEngine.err.println("Can't delete __obj__");
-        }
+        Entity result = instantiate(template.getType());
 
         result.sprite = Sprite.getSprite(template.sprite);
         result.depth = template.depth;
         result.visible = template.visible;
+        result.isStatic = template.isStatic;
+        result.hasStepHook = template.hasStepHook;
+        result.hasDrawHook = template.hasDrawHook;
         result.x = x;
         result.y = y;
+        result.savePrevious();
 
         return result;
     }
@@ -86,24 +104,104 @@ public class Entity implements Comparable<Entity>{
     }
 
     static void loadEntity(String id, Container tmp) {
+        loadEntity(id, compileEntity(tmp));
+    }
+
+    static void loadEntity(String id, EntityTemplate template) {
+        templateMap.put(id, template);
+    }
+
+    static String getTemplateSprite(String id) {
+        EntityTemplate template = templateMap.get(id);
+        return template == null ? null : template.sprite;
+    }
 
+    //compiles only, safe to call off the gl thread
+    static EntityTemplate compileEntity(Container tmp) {
         EntityTemplate template = new EntityTemplate();
-        template.code = PyEngine.compile("class __tmp__(Entity, Entity.Methods):\n" +
+        template.code = PyEngine.compile(classSource(
+                tmp.getString(Container.INIT),
+                tmp.getString(Container.STEP),
+                tmp.getString(Container.DRAW),
+                tmp.getString(Container.DESTROY)));
+        template.sprite = tmp.getString(Container.SPRITE);
+        template.visible = tmp.getBoolean(Container.VISIBLE, true);
+        template.depth = tmp.getInt(Container.DEPTH, 0);
+        template.isStatic = tmp.getBoolean(Container.STATIC, false);
+        template.hasStepHook = tmp.getString(Container.STEP) != null;
+        template.hasDrawHook = tmp.getString(Container.DRAW) != null;
+        return template;
+    }
+
+    private static String classSource(String init, String step, String draw, String destroy) {
+        return "class __tmp__(Entity, Entity.Methods):\n" +
                 "  def _init_(self):\n" +
-                (tmp.getString(Container.INIT) == null ? "    pass\n" : Parser.stringParser(tmp.getString(Container.INIT), 4)) +
+                (init == null ? "    pass\n" : Parser.stringParser(init, 4)) +
                 "  def _step_(self):\n" +
-                (tmp.getString(Container.STEP) == null ? "    pass\n" : Parser.stringParser(tmp.getString(Container.STEP), 4)) +
+                (step == null ? "    pass\n  _step_." + NO_HOOK + " = True\n" : Parser.stringParser(step, 4)) +
                 "  def _draw_(self):\n" +
-                (tmp.getString(Container.DRAW) == null ? "    pass\n" : Parser.stringParser(tmp.getString(Container.DRAW), 4)) +
+                (draw == null ? "    pass\n  _draw_." + NO_HOOK + " = True\n" : Parser.stringParser(draw, 4)) +
                 "  def _destroy_(self):\n" +
-                (tmp.getString(Container.DESTROY) == null ? "    pass\n" : Parser.stringParser(tmp.getString(Container.DESTROY), 4)) +
-                "__obj__ = __tmp__()\n" +
-                "del __tmp__");
-        template.sprite = tmp.getString(Container.SPRITE);
-        template.visible = tmp.getBoolean(Container.VISIBLE, true);
-        template.depth = tmp.getInt(Container.DEPTH, 0);
+                (destroy == null ? "    pass\n" : Parser.stringParser(destroy, 4)) +
+                //a hook set or removed at runtime registers the entity again
+                "  def __setattr__(self, name, value):\n" +
+                "    object.__setattr__(self, name, value)\n" +
+                "    if name == '_step_' or name == '_draw_':\n" +
+                "      self.refreshHooks()\n" +
+                "  def __delattr__(self, name):\n" +
+                "    object.__delattr__(self, name)\n" +
+                "    if name == '_step_' or name == '_draw_':\n" +
+                "      self.refreshHooks()\n";
+    }
 
-        templateMap.put(id, template);
+    //attribute of the generated pass hooks
+    private static final String NO_HOOK = "__no_hook__";
+
+    /**
+     * Checks the step and draw hooks again, runs on its own when a script sets _step_ or _draw_ on the entity.
+     */
+    public void refreshHooks() {
+        final PyObject self = Py.java2py(this);
+        setHooks(isHook(self, "_step_"), isHook(self, "_draw_"));
+    }
+
+    private static boolean isHook(PyObject self, String name) {
+        final PyObject hook = self.__findattr__(name);
+        //a bound method passes attribute lookups on to its function
+        return hook != null && hook.__findattr__(NO_HOOK) == null;
+    }
+
+    void setHooks(boolean step, boolean draw) {
+        if (draw != hasDrawHook) {
+            hasDrawHook = draw;
+            if (room != null)
+                room.layers.invalidate(this);
+        }
+        if (step != hasStepHook) {
+            hasStepHook = step;
+            if (room != null)
+                room.updateStepper(this);
+        }
+    }
+
+    private static Entity instantiate(PyObject type) {
+        return Py.tojava(type.__call__(), Entity.class);
+    }
+
+    /**
+     * Creates count entities of a template without adding them to a room, returns nanoseconds per spawn.
+     */
+    public static double benchmarkSpawn(String id, int count) {
+        if (!templateMap.containsKey(id))
+            throw new IllegalArgumentException("Unknown entity " + id);
+        //first one defines the class
+        createEntity(0, 0, id);
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++)
+            createEntity(0, 0, id);
+        final double result = (System.nanoTime() - start) / (double) Math.max(1, count);
+        PyEngine.out.println(String.format("Spawned %d x %s, %.1f us each", count, id, result / 1000));
+        return result;
     }
 
     void init() {
@@ -117,6 +215,30 @@ public class Entity implements Comparable<Entity>{
         ((Entity.Methods) this)._step_();
     }
 
+    void savePrevious() {
+        previousX = x;
+        previousY = y;
+        previousAngle = sprite_angle;
+    }
+
+    float getRenderX() {
+        return Simulation.interpolate(previousX, x);
+    }
+
+    float getRenderY() {
+        return Simulation.interpolate(previousY, y);
+    }
+
+    float getRenderAngle() {
+        //along the shorter arc, 359 to 1 turns two degrees forward
+        float turn = (sprite_angle - previousAngle) % 360;
+        if (turn > 180)
+            turn -= 360;
+        else if (turn <= -180)
+            turn += 360;
+        return Simulation.interpolate(sprite_angle - turn, sprite_angle);
+    }
+
     void draw() {
         ((Entity.Methods) this)._draw_();
     }
@@ -127,7 +249,28 @@ public class Entity implements Comparable<Entity>{
 
     public static void destroy(Entity target) {
         ((Entity.Methods) target)._destroy_();
-        Room.getCurrentRoom().entities.remove(target);
+        target.stopPlayers();
+        if (target.room != null)
+            target.room.removeEntity(target);
+    }
+
+    void addPlayer(AnimationPlayer player) {
+        if (players == null)
+            players = new ArrayList<>(1);
+        players.add(player);
+    }
+
+    void removePlayer(AnimationPlayer player) {
+        if (players != null)
+            players.remove(player);
+    }
+
+    void stopPlayers() {
+        if (players == null)
+            return;
+        //stopping removes the player from the list
+        while (!players.isEmpty())
+            players.get(players.size() - 1).stop();
     }
 
     public float getX() {
@@ -139,11 +282,17 @@ public class Entity implements Comparable<Entity>{
     }
 
     public void setX(float x) {
+        if (this.x == x)
+            return;
         this.x = x;
+        moved();
     }
 
     public void setY(float y) {
+        if (this.y == y)
+            return;
         this.y = y;
+        moved();
     }
 
     public float getSprite_angle() {
@@ -151,7 +300,10 @@ public class Entity implements Comparable<Entity>{
     }
 
     public void setSprite_angle(float sprite_angle) {
+        if (this.sprite_angle == sprite_angle)
+            return;
         this.sprite_angle = sprite_angle;
+        moved();
     }
 
     public boolean isVisible() {
@@ -159,7 +311,24 @@ public class Entity implements Comparable<Entity>{
     }
 
     public void setVisible(boolean visible) {
-        visible = visible;
+        if (this.visible == visible)
+            return;
+        this.visible = visible;
+        if (room != null)
+            room.layers.invalidate(this);
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /**
+     * A static entity is cached with its depth band even while it changes, each change redraws only its tiles.
+     */
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+        if (room != null)
+            room.layers.invalidate(this);
     }
 
     public interface Methods{
@@ -169,17 +338,28 @@ public class Entity implements Comparable<Entity>{
         void _destroy_();
     }
 
-    private static class EntityTemplate {
+    static class EntityTemplate {
+        //compiled off the gl thread, the class is defined on first use
         PyCode code;
+        private PyObject type;
         String sprite;
         boolean visible;
         float depth;
+        boolean isStatic;
+        boolean hasStepHook;
+        boolean hasDrawHook;
+
+        PyObject getType() {
+            if (type == null)
+                type = PyEngine.defineClass(code);
+            return type;
+        }
     }
 
     @Override
     public int compareTo(Entity o) {
         if (depth == o.depth)
-            return 0;
+            return Long.compare(order, o.order);
         return depth > o.depth ? 1 : -1;
     }
 
@@ -189,6 +369,48 @@ public class Entity implements Comparable<Entity>{
 
     public void setSprite(Sprite sprite) {
         this.sprite = sprite;
+        moved();
+    }
+
+    private void moved() {
+        if (room != null) {
+            //the tiles under both the old and the new bounds are stale
+            room.layers.invalidate(this);
+            room.grid.update(this);
+            room.layers.invalidate(this);
+        }
+    }
+
+    void updateBounds() {
+        final int width = sprite.getWidth();
+        final int height = sprite.getHeight();
+        if (sprite_angle == 0 || width == 0 || height == 0) {
+            minX = x - sprite.xOffset;
+            minY = y - sprite.yOffset;
+            maxX = minX + width;
+            maxY = minY + height;
+            return;
+        }
+        if (boundsAngle != sprite_angle) {
+            boundsAngle = sprite_angle;
+            boundsSin = (float) Math.sin(sprite_angle);
+            boundsCos = (float) Math.cos(sprite_angle);
+        }
+        //same corners as the sprite quad: rotated in sprite space, then scaled to pixels
+        final float left = -sprite.xOffset * 2f / width;
+        final float bottom = -sprite.yOffset * 2f / height;
+        minX = minY = Float.MAX_VALUE;
+        maxX = maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            float a = left + ((i & 1) == 0 ? 0 : 2);
+            float b = bottom + ((i & 2) == 0 ? 0 : 2);
+            float cornerX = x + (boundsCos * a - boundsSin * b) * width / 2;
+            float cornerY = y + (boundsSin * a + boundsCos * b) * height / 2;
+            minX = Math.min(minX, cornerX);
+            maxX = Math.max(maxX, cornerX);
+            minY = Math.min(minY, cornerY);
+            maxY = Math.max(maxY, cornerY);
+        }
     }
 
     public float getDepth() {
@@ -196,6 +418,11 @@ public class Entity implements Comparable<Entity>{
     }
 
     public void setDepth(float depth) {
-        this.depth = depth;
+        if (this.depth == depth)
+            return;
+        if (room != null)
+            room.setDepth(this, depth);
+        else
+            this.depth = depth;
     }
 }
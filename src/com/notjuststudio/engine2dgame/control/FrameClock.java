@@ -0,0 +1,103 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.Arrays;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class FrameClock {
+
+    //frames the statistics are taken over
+    static final int CAPACITY = 240;
+    //below this the limiter spins instead of sleeping, sleep overshoots by about a millisecond
+    private static final long SPIN_NANOS = 2_000_000;
+
+    //0 is unlimited
+    static int targetFPS = 0;
+
+    private static final long[] samples = new long[CAPACITY];
+    private static final long[] sorted = new long[CAPACITY];
+    private static int head = 0;
+    private static int count = 0;
+    private static long total = 0;
+    private static boolean sortedValid = false;
+
+    private static long lastFrame = System.nanoTime();
+    private static long deadline = 0;
+    private static long frameNanos = 0;
+
+    /**
+     * Waits out the rest of the frame when a target is set, then measures the frame.
+     */
+    static void endFrame() {
+        if (targetFPS > 0)
+            sync(1_000_000_000L / targetFPS);
+        long now = System.nanoTime();
+        frameNanos = now - lastFrame;
+        lastFrame = now;
+        add(frameNanos);
+    }
+
+    private static void sync(long period) {
+        long now = System.nanoTime();
+        //a frame that was too slow starts a new schedule instead of rushing the next ones
+        deadline = now - deadline > period ? now + period : deadline + period;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            try {
+                Thread.sleep((remaining - SPIN_NANOS) / 1_000_000, 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        while (deadline - System.nanoTime() > 0)
+            Thread.yield();
+    }
+
+    private static void add(long nanos) {
+        if (count == CAPACITY)
+            total -= samples[head];
+        else
+            count++;
+        samples[head] = nanos;
+        total += nanos;
+        head = (head + 1) % CAPACITY;
+        sortedValid = false;
+    }
+
+    /**
+     * Restarts the measured frame, so a long pause is not reported as one frame.
+     */
+    static void reset() {
+        lastFrame = System.nanoTime();
+        deadline = lastFrame;
+    }
+
+    static long getFrameNanos() {
+        return frameNanos;
+    }
+
+    static double getMean() {
+        return count == 0 ? 0 : total / (double) count;
+    }
+
+    /**
+     * Frame time in nanoseconds below which the given fraction of the recorded frames lies.
+     */
+    static long getPercentile(double fraction) {
+        if (count == 0)
+            return 0;
+        if (!sortedValid) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedValid = true;
+        }
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.min(count - 1, Math.max(0, index))];
+    }
+
+    static long getMax() {
+        return getPercentile(1);
+    }
+}
@@ -0,0 +1,173 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.util.Arrays;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class GLState {
+
+    private static final int
+            UNKNOWN = -1,
+            TEXTURE_UNITS = 16;
+
+    private static int program = UNKNOWN;
+    private static int activeUnit = UNKNOWN;
+    private static final int[] textures = new int[TEXTURE_UNITS];
+    private static int vao = UNKNOWN;
+    private static int framebuffer = UNKNOWN;
+    private static int
+            viewportX = UNKNOWN,
+            viewportY = UNKNOWN,
+            viewportWidth = UNKNOWN,
+            viewportHeight = UNKNOWN;
+    private static int blend = UNKNOWN;
+    private static int
+            blendSource = UNKNOWN,
+            blendDestination = UNKNOWN,
+            blendSourceAlpha = UNKNOWN,
+            blendDestinationAlpha = UNKNOWN;
+
+    private static int requested = 0;
+    private static int issued = 0;
+    private static int lastRequested = 0;
+    private static int lastIssued = 0;
+
+    static {
+        Arrays.fill(textures, UNKNOWN);
+    }
+
+    private static boolean change(boolean changed) {
+        requested++;
+        if (changed)
+            issued++;
+        return changed;
+    }
+
+    static void useProgram(int id) {
+        if (change(program != id)) {
+            program = id;
+            GL20.glUseProgram(id);
+        }
+    }
+
+    static void activeTexture(int unit) {
+        if (change(activeUnit != unit)) {
+            activeUnit = unit;
+            GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+        }
+    }
+
+    static void bindTexture(int unit, int id) {
+        activeTexture(unit);
+        if (change(textures[unit] != id)) {
+            textures[unit] = id;
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+        }
+    }
+
+    static void bindTexture(int id) {
+        bindTexture(0, id);
+    }
+
+    static void bindVao(int id) {
+        if (change(vao != id)) {
+            vao = id;
+            GL30.glBindVertexArray(id);
+        }
+    }
+
+    static void bindFramebuffer(int id) {
+        if (change(framebuffer != id)) {
+            framebuffer = id;
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, id);
+        }
+    }
+
+    static void viewport(int x, int y, int width, int height) {
+        if (change(viewportX != x || viewportY != y || viewportWidth != width || viewportHeight != height)) {
+            viewportX = x;
+            viewportY = y;
+            viewportWidth = width;
+            viewportHeight = height;
+            GL11.glViewport(x, y, width, height);
+        }
+    }
+
+    static void setBlend(boolean enabled) {
+        if (change(blend != (enabled ? 1 : 0))) {
+            blend = enabled ? 1 : 0;
+            if (enabled)
+                GL11.glEnable(GL11.GL_BLEND);
+            else
+                GL11.glDisable(GL11.GL_BLEND);
+        }
+    }
+
+    static void blendFunc(int source, int destination) {
+        blendFuncSeparate(source, destination, source, destination);
+    }
+
+    static void blendFuncSeparate(int source, int destination, int sourceAlpha, int destinationAlpha) {
+        if (change(blendSource != source || blendDestination != destination ||
+                blendSourceAlpha != sourceAlpha || blendDestinationAlpha != destinationAlpha)) {
+            blendSource = source;
+            blendDestination = destination;
+            blendSourceAlpha = sourceAlpha;
+            blendDestinationAlpha = destinationAlpha;
+            GL14.glBlendFuncSeparate(source, destination, sourceAlpha, destinationAlpha);
+        }
+    }
+
+    static void deleteTexture(int id) {
+        GL11.glDeleteTextures(id);
+        //deleting a bound texture rebinds 0 on every unit it was bound to
+        for (int i = 0; i < TEXTURE_UNITS; i++)
+            if (textures[i] == id)
+                textures[i] = 0;
+    }
+
+    static void deleteVao(int id) {
+        GL30.glDeleteVertexArrays(id);
+        if (vao == id)
+            vao = 0;
+    }
+
+    static void deleteFramebuffer(int id) {
+        GL30.glDeleteFramebuffers(id);
+        if (framebuffer == id)
+            framebuffer = 0;
+    }
+
+    static void invalidate() {
+        program = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        vao = UNKNOWN;
+        framebuffer = UNKNOWN;
+        viewportX = viewportY = viewportWidth = viewportHeight = UNKNOWN;
+        blend = UNKNOWN;
+        blendSource = blendDestination = blendSourceAlpha = blendDestinationAlpha = UNKNOWN;
+    }
+
+    static void resetCounters() {
+        lastRequested = requested;
+        lastIssued = issued;
+        requested = 0;
+        issued = 0;
+    }
+
+    static int getRequested() {
+        return lastRequested;
+    }
+
+    static int getIssued() {
+        return lastIssued;
+    }
+}
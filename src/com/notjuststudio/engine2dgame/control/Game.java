@@ -3,9 +3,7 @@ package com.notjuststudio.engine2dgame.control;
 import com.notjuststudio.engine2dgame.util.Parser;
 import org.lwjgl.opengl.GL11;
 
-import javax.imageio.ImageIO;
 import java.io.File;
-import java.io.IOException;
 
 /**
  * Created by Georgy on 10.05.2017.
@@ -14,6 +12,8 @@ public class Game {
 
     static String SCREENSHOT_NAME = "Screenshot";
     static boolean debug = true;
+    //no display and no gl, see Main.startHeadless
+    static boolean headless = false;
 
     static String gpuVendor;
     static String gpuRenderer;
@@ -24,28 +24,69 @@ public class Game {
     static String background;
 
     public static void takeScreenshot() {
+        takeScreenshot((ScreenshotCallback) null);
+    }
+
+    public static void takeScreenshot(ScreenshotCallback callback) {
         for (int i = 1;;i++) {
             File file = new File(SCREENSHOT_NAME + "_" + i + ".png");
-            if (file.exists())
+            if (file.exists() || Screenshot.isReserved(file))
                 continue;
-            try {
-                ImageIO.write(Loader.loadImageFromScreen(), "png", file);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            Screenshot.request(file, callback);
             return;
         }
     }
 
     public static void takeScreenshot(String fileName) {
+        takeScreenshot(fileName, null);
+    }
+
+    public static void takeScreenshot(String fileName, ScreenshotCallback callback) {
         File file = new File(fileName + ".png");
-        if (file.exists())
+        if (file.exists() || Screenshot.isReserved(file))
             return;
-        try {
-            ImageIO.write(Loader.loadImageFromScreen(), "png", file);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        Screenshot.request(file, callback);
+    }
+
+    /**
+     * Appends a full screen pass, effects run in the order they were added.
+     */
+    public static void addPostEffect(PostEffect effect) {
+        PostProcessing.add(effect);
+    }
+
+    public static void removePostEffect(PostEffect effect) {
+        PostProcessing.remove(effect);
+    }
+
+    public static void clearPostEffects() {
+        PostProcessing.removeAll();
+    }
+
+    /**
+     * Steps the rooms at a fixed rate and interpolates what is drawn in between, 0 steps once per frame.
+     */
+    public static void setTickRate(float ticksPerSecond) {
+        Simulation.tickRate = Math.max(0, ticksPerSecond);
+        Simulation.reset();
+    }
+
+    public static float getTickRate() {
+        return Simulation.tickRate;
+    }
+
+    /**
+     * Steps one frame may catch up on, time beyond that is dropped so a slow frame can not make the next one slower.
+     */
+    public static void setMaxSteps(int steps) {
+        Simulation.maxSteps = Math.max(1, steps);
+    }
+
+    /**
+     * Seconds the current step simulates, the fixed step or the frame delta when the tick rate is 0.
+     */
+    public static float getStepDelta() {
+        return Simulation.getStepDelta();
     }
 
     public static void closeRequest() {
@@ -59,7 +100,18 @@ public class Game {
         maxMemory = Runtime.getRuntime().maxMemory();
     }
 
+    public static boolean isHeadless() {
+        return headless;
+    }
+
     public static long getTotalMemory() {
         return Runtime.getRuntime().totalMemory();
     }
+
+    /**
+     * Called on the main thread once the screenshot file is written, python functions can be passed directly.
+     */
+    public interface ScreenshotCallback {
+        void done(String fileName, boolean success);
+    }
 }
@@ -5,6 +5,7 @@ import org.lwjgl.input.Mouse;
 
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.IntPredicate;
 
 /**
  * Created by George on 07.03.2017.
@@ -161,69 +162,96 @@ public class InputManager {
     private static final Set<Integer> mousePressed = new TreeSet<>();
     private static final Set<Integer> mouseReleased = new TreeSet<>();
 
-    static void update() {
-        Set<Integer> wasPressed = new TreeSet<>();
-        Set<Integer> wasReleased = new TreeSet<>();
+    private static Source source = new DeviceSource();
+
+    /**
+     * Where the key and button events come from, scripted sources let headless runs replay input.
+     */
+    public interface Source {
+        //fills what went down and up since the last call, called once per update
+        void poll(Set<Integer> keysDown, Set<Integer> keysUp, Set<Integer> buttonsDown, Set<Integer> buttonsUp);
+        boolean isKeyDown(int key);
+        boolean isButtonDown(int button);
+        int getMouseX();
+        int getMouseY();
+    }
 
-        //Keyboard update
+    public static void setSource(Source source) {
+        InputManager.source = source == null ? new DeviceSource() : source;
+    }
 
-        while (Keyboard.next()) {
-            if (Keyboard.getEventKeyState()) {
-                wasPressed.add(Keyboard.getEventKey());
-            } else {
-                wasReleased.add(Keyboard.getEventKey());
-            }
-        }
+    static void update() {
+        Set<Integer> keysDown = new TreeSet<>();
+        Set<Integer> keysUp = new TreeSet<>();
+        Set<Integer> buttonsDown = new TreeSet<>();
+        Set<Integer> buttonsUp = new TreeSet<>();
+        source.poll(keysDown, keysUp, buttonsDown, buttonsUp);
+
+        update(keysDown, keysUp, keyTouched, keyPressed, keyReleased, source::isKeyDown);
+        update(buttonsDown, buttonsUp, mouseTouched, mousePressed, mouseReleased, source::isButtonDown);
+    }
 
-        keyReleased.clear();
-        keyReleased.addAll(wasReleased);
+    private static void update(Set<Integer> wasPressed, Set<Integer> wasReleased,
+                               Set<Integer> touched, Set<Integer> pressed, Set<Integer> released, IntPredicate isDown) {
+        released.clear();
+        released.addAll(wasReleased);
 
-        Set<Integer> tmp = new TreeSet<>(keyPressed);
+        Set<Integer> tmp = new TreeSet<>(pressed);
 
         for (int key : tmp) {
-            if (!Keyboard.isKeyDown(key)) {
-                keyPressed.remove(key);
-                keyReleased.add(key);
+            if (!isDown.test(key)) {
+                pressed.remove(key);
+                released.add(key);
             }
         }
 
-        keyPressed.addAll(keyTouched);
-        keyPressed.removeAll(wasReleased);
+        pressed.addAll(touched);
+        pressed.removeAll(wasReleased);
 
-        keyTouched.clear();
-        keyTouched.addAll(wasPressed);
-
-        wasPressed.clear();
-        wasReleased.clear();
+        touched.clear();
+        touched.addAll(wasPressed);
+    }
 
-        //Mouse update
+    private static class DeviceSource implements Source {
 
-        while (Mouse.next()) {
-            if (Mouse.getEventButton() != -1)
-                if (Mouse.getEventButtonState()) {
-                    wasPressed.add(Mouse.getEventButton());
+        @Override
+        public void poll(Set<Integer> keysDown, Set<Integer> keysUp, Set<Integer> buttonsDown, Set<Integer> buttonsUp) {
+            while (Keyboard.next()) {
+                if (Keyboard.getEventKeyState()) {
+                    keysDown.add(Keyboard.getEventKey());
                 } else {
-                    wasReleased.add(Mouse.getEventButton());
+                    keysUp.add(Keyboard.getEventKey());
                 }
+            }
+            while (Mouse.next()) {
+                if (Mouse.getEventButton() != -1)
+                    if (Mouse.getEventButtonState()) {
+                        buttonsDown.add(Mouse.getEventButton());
+                    } else {
+                        buttonsUp.add(Mouse.getEventButton());
+                    }
+            }
         }
 
-        mouseReleased.clear();
-        mouseReleased.addAll(wasReleased);
-
-        tmp = new TreeSet<>(mousePressed);
+        @Override
+        public boolean isKeyDown(int key) {
+            return Keyboard.isKeyDown(key);
+        }
 
-        for (int key : tmp) {
-            if (!Mouse.isButtonDown(key)) {
-                mousePressed.remove(key);
-                mouseReleased.add(key);
-            }
+        @Override
+        public boolean isButtonDown(int button) {
+            return Mouse.isButtonDown(button);
         }
 
-        mousePressed.addAll(mouseTouched);
-        mousePressed.removeAll(wasReleased);
+        @Override
+        public int getMouseX() {
+            return Mouse.getX();
+        }
 
-        mouseTouched.clear();
-        mouseTouched.addAll(wasPressed);
+        @Override
+        public int getMouseY() {
+            return Mouse.getY();
+        }
     }
 
     public static Set<Integer> getKeyTouched() {
@@ -274,9 +302,9 @@ public class InputManager {
         return mouseReleased.contains(key);
     }
 
-    public static int getMouseX() {return Mouse.getX();}
+    public static int getMouseX() {return source.getMouseX();}
 
-    public static int getMouseY() {return Mouse.getY();}
+    public static int getMouseY() {return source.getMouseY();}
 
     public static char getChar(int key) {
         char result;
@@ -7,7 +7,7 @@ public class Instance {
 
     static Entity instanceCreate(float x, float y, String id, Room room) {
         Entity result = Entity.createEntity(x, y, id);
-        room.entities.add(result);
+        room.addEntity(result);
         return result;
     }
 
@@ -1,5 +1,7 @@
 package com.notjuststudio.engine2dgame.control;
 
+import com.notjuststudio.engine2dgame.util.BufferPool;
+import com.notjuststudio.engine2dgame.util.ImageData;
 import com.notjuststudio.engine2dgame.util.ImageLoader;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.*;
@@ -11,8 +13,6 @@ import java.nio.ByteBuffer;
 import java.awt.image.BufferedImage;
 
 import java.nio.IntBuffer;
-import java.util.Set;
-import java.util.HashSet;
 
 /**
  * Created by Georgy on 31.03.2017.
@@ -21,90 +21,125 @@ public class Loader {
 
     private static int vaoID = 0;
     private static int vboID = 0;
+    private static int instanceVboID = 0;
+    private static int quadIndexID = 0;
+    private static int quadIndexCapacity = 0;
 
-    private static int frameScreenID = 0;
-    private static int frameScreenTextureID = 0;
-    private static int frameRoomID = 0;
-    private static int frameRoomTextureID = 0;
+    //four (x, y, u, v) vertices
+    static final int QUAD_SIZE = 4 * 4 * 4;
 
-    private static Set<Integer> textureList = new HashSet<>();
+    private static RenderTargetPool.Target frameScreen;
 
     private static boolean anisotropicFilter;
-
-    static {
-        if (!(anisotropicFilter = GLContext.getCapabilities().GL_EXT_texture_filter_anisotropic))
-            System.err.println("Anisotropic filter is not supported!");
-    }
+    private static boolean instancing;
+    private static boolean instancingARB;
 
     static void init() {
+        //queried here, loading the class needs no gl context
+        ContextCapabilities capabilities = GLContext.getCapabilities();
+        if (!(anisotropicFilter = capabilities.GL_EXT_texture_filter_anisotropic))
+            System.err.println("Anisotropic filter is not supported!");
+        instancingARB = !capabilities.OpenGL33;
+        if (!(instancing = capabilities.OpenGL33 || capabilities.GL_ARB_instanced_arrays))
+            System.err.println("Instanced arrays are not supported!");
 
         vaoID = createVAO();
         float[] data = {-1, 1, -1, -1, 1, 1, 1, -1};
         vboID = storeDataInAttributeList(0, 2, storeDataInFloatBuffer(data));
         GL20.glEnableVertexAttribArray(0);
+        if (instancing)
+            instanceVboID = createInstanceAttributes(1, SpriteBatch.ATTRIBUTE_COUNT, SpriteBatch.MAX_INSTANCES);
         bindNoneVAO();
 
-        frameScreenID = createFrameBuffer();
-        frameScreenTextureID = createTextureAttachment(DisplayManager.width, DisplayManager.height);
+        frameScreen = RenderTargetPool.acquire(DisplayManager.width, DisplayManager.height, GL11.GL_RGBA8, "screen");
 
         TextFont.loadFont(
                 "default",
                 ShaderProgram.DEFAULT_PATH + "debug.png",
                 ShaderProgram.DEFAULT_PATH + "debug.fnt");
+        //the loading screen draws with it before the game atlas is built
+        while (!TextureAtlas.build(Long.MAX_VALUE));
     }
 
     static void clear() {
-        GL30.glDeleteVertexArrays(vaoID);
+        GLState.deleteVao(vaoID);
         GL15.glDeleteBuffers(vboID);
-        textureList.forEach(GL11::glDeleteTextures);
-        clearFrames();
-        GL30.glDeleteFramebuffers(frameScreenID);
-        GL11.glDeleteTextures(frameScreenTextureID);
+        GL15.glDeleteBuffers(instanceVboID);
+        GL15.glDeleteBuffers(quadIndexID);
+        RenderTargetPool.release(frameScreen);
+        frameScreen = null;
     }
 
     private static int createVAO() {
         int vaoID = GL30.glGenVertexArrays();
-        GL30.glBindVertexArray(vaoID);
+        GLState.bindVao(vaoID);
         return vaoID;
     }
 
-    static int[] createTextVAO(float[] positions, float[] uvs) {
-        int[] result = new int[4];
+    static int[] createQuadVAO(int capacity) {
+        int indices = getQuadIndexID(capacity);
+        int[] result = new int[2];
         result[0] = createVAO();
-        int[] indices = new int[positions.length / 4 * 3];
-        for (int i = 0; i < positions.length / 8; i++) {
-            indices[i * 6] = i * 4;
-            indices[i * 6 + 1] = i * 4 + 2;
-            indices[i * 6 + 2] = i * 4 + 1;
-            indices[i * 6 + 3] = i * 4 + 1;
-            indices[i * 6 + 4] = i * 4 + 2;
-            indices[i * 6 + 5] = i * 4 + 3;
-        }
-        result[1] = storeDataInIndicesBuffer(storeDataInIntBufferBuffer(indices));
-        result[2] = storeDataInAttributeList(0, 2, storeDataInFloatBuffer(positions));
-        result[3] = storeDataInAttributeList(1, 2, storeDataInFloatBuffer(uvs));
+        result[1] = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, result[1]);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) capacity * QUAD_SIZE, GL15.GL_DYNAMIC_DRAW);
+        //interleaved (x, y, u, v) per vertex
+        GL20.glVertexAttribPointer(0, 2, GL11.GL_FLOAT, false, 16, 0);
+        GL20.glVertexAttribPointer(1, 2, GL11.GL_FLOAT, false, 16, 8);
         GL20.glEnableVertexAttribArray(0);
         GL20.glEnableVertexAttribArray(1);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indices);
         bindNoneVAO();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
         return result;
     }
 
+    static void updateQuadData(int vboID, int capacity, FloatBuffer data) {
+        //grows the index buffer in place, so the id already bound to quad vaos stays valid
+        getQuadIndexID(capacity);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        //orphan the old storage instead of waiting for draws that still read it
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) capacity * QUAD_SIZE, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    private static int getQuadIndexID(int quads) {
+        if (quads <= quadIndexCapacity)
+            return quadIndexID;
+        int capacity = Math.max(quads, quadIndexCapacity * 2);
+        IntBuffer indices = BufferUtils.createIntBuffer(capacity * 6);
+        for (int i = 0; i < capacity; i++) {
+            indices.put(i * 4).put(i * 4 + 2).put(i * 4 + 1);
+            indices.put(i * 4 + 1).put(i * 4 + 2).put(i * 4 + 3);
+        }
+        indices.flip();
+        if (quadIndexID == 0)
+            quadIndexID = GL15.glGenBuffers();
+        //uploaded through the array target, binding an element buffer would change the bound vao
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, quadIndexID);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        quadIndexCapacity = capacity;
+        return quadIndexID;
+    }
+
     static void bindVao(int vaoID) {
-        GL30.glBindVertexArray(vaoID);
+        GLState.bindVao(vaoID);
     }
 
     static void bindNoneVAO() {
-        GL30.glBindVertexArray(0);
+        GLState.bindVao(0);
     }
 
     static void bindFrameBuffer(int frame, int width, int height) {
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, frame);
-        GL11.glViewport(0, 0, width, height);
+        GLState.bindFramebuffer(frame);
+        GLState.viewport(0, 0, width, height);
     }
 
     static void bindDefaultFrameBuffer() {
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
-        GL11.glViewport(0, 0, Display.getWidth(), Display.getHeight());
+        GLState.bindFramebuffer(0);
+        GLState.viewport(0, 0, Display.getWidth(), Display.getHeight());
     }
 
     private static int storeDataInAttributeList(int attributeNumber, int size, FloatBuffer data) {
@@ -116,13 +151,34 @@ public class Loader {
         return vboID;
     }
 
-    private static int storeDataInIndicesBuffer(IntBuffer indices) {
+    private static int createInstanceAttributes(int firstAttribute, int count, int maxInstances) {
         int vboID = GL15.glGenBuffers();
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboID);
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+        int stride = count * 4 * 4;
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) stride * maxInstances, GL15.GL_STREAM_DRAW);
+        for (int i = 0; i < count; i++) {
+            GL20.glVertexAttribPointer(firstAttribute + i, 4, GL11.GL_FLOAT, false, stride, i * 4 * 4);
+            if (instancingARB)
+                ARBInstancedArrays.glVertexAttribDivisorARB(firstAttribute + i, 1);
+            else
+                GL33.glVertexAttribDivisor(firstAttribute + i, 1);
+            GL20.glEnableVertexAttribArray(firstAttribute + i);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
         return vboID;
     }
 
+    static void updateInstanceData(FloatBuffer data) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVboID);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) SpriteBatch.ATTRIBUTE_COUNT * 4 * 4 * SpriteBatch.MAX_INSTANCES, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    static boolean isInstancingSupported() {
+        return instancing;
+    }
+
     static FloatBuffer storeDataInFloatBuffer(float[] data) {
         return (FloatBuffer) BufferUtils.createFloatBuffer(data.length).put(data).flip();
     }
@@ -132,11 +188,23 @@ public class Loader {
     }
 
     static int loadTexture(BufferedImage image, int clamp) {
+        return loadTexture(ImageLoader.imageToData(image), clamp);
+    }
+
+    /**
+     * Uploads and releases the image data.
+     */
+    static int loadTexture(ImageData image, int clamp) {
+        int texID = loadTexture(image.getPixels(), image.width, image.height, clamp);
+        image.release();
+        return texID;
+    }
+
+    static int loadTexture(ByteBuffer buffer, int width, int height, int clamp) {
         int texID = GL11.glGenTextures();
-        GL13.glActiveTexture(texID);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texID);
+        GLState.bindTexture(texID);
 
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, image.getWidth(), image.getHeight(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, ImageLoader.imageToBuffer(image));
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
 
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -149,72 +217,47 @@ public class Loader {
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, clamp);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, clamp);
 
-        textureList.add(texID);
         return texID;
     }
 
-    static BufferedImage loadImageFromScreen() {
-        GL11.glReadBuffer(GL11.GL_FRONT);
-
-        int width = Display.getDisplayMode().getWidth();
-        int height = Display.getDisplayMode().getHeight();
-
-        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * width * height).order(ByteOrder.nativeOrder());
-
-        GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer );
-
-        BufferedImage bImageFromConvert = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int i = (x + (width * y)) * 4;
-                int r = buffer.get(i) & 0xFF;
-                int g = buffer.get(i + 1) & 0xFF;
-                int b = buffer.get(i + 2) & 0xFF;
-                bImageFromConvert.setRGB(x, height - (y + 1), (0xFF << 24) | (r << 16) | (g << 8) | b);
-            }
-        }
-
-        return bImageFromConvert;
-    }
-
-    static BufferedImage loadImageFromTexture(int textureID) {
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
-        int width = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH);
-        int height = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
-
-        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * width * height).order(ByteOrder.nativeOrder());
-
-        GL11.glGetTexImage(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
-
-        BufferedImage bImageFromConvert = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                int i = (x + (width * y)) * 4;
-                int r = buffer.get(i) & 0xFF;
-                int g = buffer.get(i + 1) & 0xFF;
-                int b = buffer.get(i + 2) & 0xFF;
-                int a = buffer.get(i + 3) & 0xFF;
-                bImageFromConvert.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
-            }
+    /**
+     * Reads a rectangle of a texture back as packed ARGB ints, u and v locate its top left corner.
+     */
+    static int[] loadPixelsFromTexture(int textureID, float u, float v, int width, int height) {
+        GLState.bindTexture(textureID);
+        int textureWidth = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH);
+        int textureHeight = GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
+
+        ByteBuffer buffer = BufferPool.acquire(4 * textureWidth * textureHeight);
+        //BGRA with the reversed packed type reads as one native ARGB int per pixel
+        GL11.glGetTexImage(GL11.GL_TEXTURE_2D, 0, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, buffer);
+        IntBuffer pixels = buffer.asIntBuffer();
+
+        int x = Math.round(u * textureWidth);
+        int y = Math.round(v * textureHeight);
+        width = Math.min(width, textureWidth - x);
+        height = Math.min(height, textureHeight - y);
+        int[] result = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            pixels.position((y + row) * textureWidth + x);
+            pixels.get(result, row * width, width);
         }
-
-        return bImageFromConvert;
+        BufferPool.release(buffer);
+        return result;
     }
 
-    static void createRoom(Room room) {
-        frameRoomID = createFrameBuffer();
-        frameRoomTextureID = createTextureAttachment(room.width, room.height);
-        bindDefaultFrameBuffer();
+    static int[] getTextureSize(int textureID) {
+        GLState.bindTexture(textureID);
+        return new int[]{
+                GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH),
+                GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT)
+        };
     }
 
     static int createFrameBuffer() {
         int frameBuffer = GL30.glGenFramebuffers();
         //generate name for frame buffer
-        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, frameBuffer);
+        GLState.bindFramebuffer(frameBuffer);
         //create the framebuffer
         GL11.glDrawBuffer(GL30.GL_COLOR_ATTACHMENT0);
         //indicate that we will always renderToViews to color attachment 0
@@ -222,9 +265,13 @@ public class Loader {
     }
 
     static int createTextureAttachment(int width, int height) {
+        return createTextureAttachment(width, height, GL11.GL_RGBA);
+    }
+
+    static int createTextureAttachment(int width, int height, int format) {
         int texture = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height,0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GLState.bindTexture(texture);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, format, width, height,0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
 
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -246,26 +293,11 @@ public class Loader {
         return vaoID;
     }
 
-    static void clearFrames(){
-        GL30.glDeleteFramebuffers(frameRoomID);
-        GL11.glDeleteTextures(frameRoomTextureID);
-        frameRoomID = 0;
-        frameRoomTextureID = 0;
-    }
-
     static int getFrameScreenID() {
-        return frameScreenID;
+        return frameScreen.framebufferID;
     }
 
     static int getFrameScreenTextureID() {
-        return frameScreenTextureID;
-    }
-
-    static int getFrameRoomID() {
-        return frameRoomID;
-    }
-
-    static int getFrameRoomTextureID() {
-        return frameRoomTextureID;
+        return frameScreen.textureID;
     }
 }
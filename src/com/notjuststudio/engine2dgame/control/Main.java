@@ -9,6 +9,7 @@ import org.lwjgl.opengl.Display;
 
 import java.io.*;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 
 /**
@@ -17,37 +18,44 @@ import java.nio.file.Path;
 public class Main {
 
     public static void start(final Container gameKeeper, final Container[] sprites, final Container[] back, final Container[] font, final Container[] ent, final Container[] room) {
+        final Container[][] sources = {sprites, back, font, ent, room};
+        start(gameKeeper, (type, index, id) -> sources[Arrays.asList(AssetLoader.TYPES).indexOf(type)][index]);
+    }
+
+    public static void start(final Container gameKeeper, final Path gamePath) {
+        start(gameKeeper, (type, index, id) -> FPNTDecoder.read(gamePath.resolve(type).resolve(id + FPNTConstants.EXTENSION).toFile(), new Container()));
+    }
+
+    private static void start(final Container gameKeeper, final AssetLoader.Source sources) {
         try {
             //init
             PyEngine.err.println("Initialization...");
             DisplayManager.init(gameKeeper.getInt(Container.WIDTH), gameKeeper.getInt(Container.HEIGHT), gameKeeper.getString(Container.TITLE), gameKeeper.getBufferedImage(Container.ICON), DisplayManager.WINDOWED_BORDERLESS);
             Game.init();
             Loader.init();
+            ShaderProgram.init();
             MasterRender.init();
             PyEngine.init();
 
             //loading
             PyEngine.err.println("Loading sources...");
-            for (int i = 0; i < sprites.length; i++) {
-                final Container source = sprites[i];
-                Sprite.loadSprite(gameKeeper.getStringArray("Sprite")[i], source);
-            }
-            for (int i = 0; i < back.length; i++) {
-                final Container source = back[i];
-                Background.loadBackground(gameKeeper.getStringArray("Background")[i], source);
-            }
-            for (int i = 0; i < font.length; i++) {
-                final Container source = font[i];
-                TextFont.loadFont(gameKeeper.getStringArray("Font")[i], source);
-            }
-            for (int i = 0; i < ent.length; i++) {
-                final Container source = ent[i];
-                Entity.loadEntity(gameKeeper.getStringArray("Entity")[i], source);
+            final long loadingStart = System.nanoTime();
+            AssetLoader.start(gameKeeper, sources);
+            while (!AssetLoader.upload(AssetLoader.uploadBudget)) {
+                if (DisplayManager.isCloseRequested())
+                    return;
+                MasterRender.renderLoading(AssetLoader.getProgress());
+                DisplayManager.update();
             }
-            for (int i = 0; i < room.length; i++) {
-                final Container source = room[i];
-                Room.loadRoom(gameKeeper.getStringArray("Room")[i], source);
+            AssetLoader.shutdown();
+            //atlas pages go up within the same budget, the loading screen keeps drawing
+            while (!TextureAtlas.build(AssetLoader.uploadBudget)) {
+                if (DisplayManager.isCloseRequested())
+                    return;
+                MasterRender.renderLoading(AssetLoader.getProgress());
+                DisplayManager.update();
             }
+            PyEngine.err.println(String.format("Loaded %d source(s) in %.2f s", AssetLoader.getTotal(), (System.nanoTime() - loadingStart) / 1e9));
 
             Game.background = gameKeeper.getString(Container.BACKGROUND);
 
@@ -65,25 +73,15 @@ public class Main {
 
                 PyEngine.execConsole();
 
-                InputManager.update();
-
-                if (InputManager.isKeyTouched(InputManager.KEY_F3)) {
-                    Game.debug ^= true;
-                }
-                if (InputManager.isKeyTouched(InputManager.KEY_F4)) {
-                    DisplayManager.setFullscreenState(DisplayManager.getFullscreenState() == 1 ? 0 : DisplayManager.getFullscreenState() + 1);
-                    DisplayManager.updateDisplaySetting();
-                }
-                if (InputManager.isKeyTouched(InputManager.KEY_F11)) {
-                    Game.takeScreenshot();
-                }
-
                 if (Room.isChanging) {
 
+                    updateInput();
+
                     Room.time += DisplayManager.getDelta();
                     if (Room.time >= Room.endTime) {
                         Room.time = 0;
                         Room.isChanging = false;
+                        Room.releaseTransition();
                         continue;
                     }
                     Room.roomAnimation.step(DisplayManager.getDelta());
@@ -94,28 +92,138 @@ public class Main {
 
                 } else {
 
-                    for (Entity entity : Room.getCurrentRoom().entities) {
-                        entity.step();
+                    final Room room = Room.getCurrentRoom();
+                    final int steps = Simulation.advance(DisplayManager.getDelta());
+                    //input is read per step, a frame without steps leaves the events queued
+                    for (int i = 0; i < steps && Room.changingRoomState == Room.NOT_CHANGING; i++) {
+                        updateInput();
+                        Simulation.step(room);
                     }
 
                     MasterRender.render(0, Display.getWidth(), Display.getHeight());
                 }
 
+                Screenshot.update();
                 //update
                 DisplayManager.update();
+                Uniform.resetCounters();
+                GLState.resetCounters();
+                TextureManager.endFrame();
             }
         } catch (Throwable e) {
             e.printStackTrace();
         } finally {
             //clean
             PyEngine.err.println("Closing...");
+            AssetLoader.shutdown();
+            Screenshot.clear();
             ShaderProgram.clear();
             Text.clearUp();
+            TextureManager.clear();
+            Room.releaseTransition();
+            Animator.clear();
+            PostProcessing.clear();
             Loader.clear();
+            RenderTargetPool.clear();
             DisplayManager.destroy();
         }
     }
 
+    public static void startHeadless(final Container gameKeeper, final Path gamePath, final int frames, final InputManager.Source input) {
+        startHeadless(gameKeeper, (type, index, id) -> FPNTDecoder.read(gamePath.resolve(type).resolve(id + FPNTConstants.EXTENSION).toFile(), new Container()),
+                frames, 1 / 60f, input);
+    }
+
+    /**
+     * Runs the rooms without a display or gl, for soak tests and benchmarks.
+     * Every frame advances the simulation by frameTime, 0 frames runs until the game closes itself.
+     */
+    static void startHeadless(final Container gameKeeper, final AssetLoader.Source sources, final int frames, final float frameTime, final InputManager.Source input) {
+        Game.headless = true;
+        try {
+            PyEngine.err.println("Initialization (headless)...");
+            Game.maxMemory = Runtime.getRuntime().maxMemory();
+            PyEngine.init();
+            InputManager.setSource(input == null ? new ScriptedInput() : input);
+            TextFont.loadFont(
+                    "default",
+                    ShaderProgram.DEFAULT_PATH + "debug.png",
+                    ShaderProgram.DEFAULT_PATH + "debug.fnt");
+
+            PyEngine.err.println("Loading sources...");
+            AssetLoader.start(gameKeeper, sources);
+            while (!AssetLoader.upload(Long.MAX_VALUE))
+                Thread.sleep(1);
+            AssetLoader.shutdown();
+
+            Game.background = gameKeeper.getString(Container.BACKGROUND);
+            Room.next(gameKeeper.getString(Container.FIRST_ROOM));
+
+            PyEngine.err.println("Starting headless loop...");
+            final long start = System.nanoTime();
+            int frame = 0;
+            for (; frames <= 0 || frame < frames; frame++) {
+                Room.changeRoom();
+                if (DisplayManager.isCloseRequested())
+                    break;
+
+                DisplayManager.delta = frameTime;
+                final Room room = Room.getCurrentRoom();
+                final int steps = Simulation.advance(frameTime);
+                for (int i = 0; i < steps && Room.changingRoomState == Room.NOT_CHANGING; i++) {
+                    InputManager.update();
+                    Simulation.step(room);
+                }
+            }
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            PyEngine.err.println(String.format("Simulated %d frame(s) in %.2f s, %.1f frames/s", frame, seconds, frame / seconds));
+        } catch (Throwable e) {
+            e.printStackTrace();
+        } finally {
+            PyEngine.err.println("Closing...");
+            AssetLoader.shutdown();
+            Animator.clear();
+            InputManager.setSource(null);
+            Game.headless = false;
+        }
+    }
+
+    /**
+     * Rewrites the image assets with png blocks, which load without a {@link java.awt.image.BufferedImage}.
+     */
+    static void convertImages(final Container gameKeeper, final Path gamePath) {
+        int files = 0;
+        for (String type : new String[]{"Sprite", "Background", "Font"}) {
+            final String[] keys = gameKeeper.getStringArray(type);
+            if (keys == null)
+                continue;
+            for (String id : keys) {
+                final File file = gamePath.resolve(type).resolve(id + FPNTConstants.EXTENSION).toFile();
+                final Container container = FPNTDecoder.read(file, new Container());
+                if (container.convertImages() == 0)
+                    continue;
+                FPNTDecoder.write(file, container);
+                files++;
+            }
+        }
+        PyEngine.err.println("Converted images in " + files + " file(s)");
+    }
+
+    private static void updateInput() {
+        InputManager.update();
+
+        if (InputManager.isKeyTouched(InputManager.KEY_F3)) {
+            Game.debug ^= true;
+        }
+        if (InputManager.isKeyTouched(InputManager.KEY_F4)) {
+            DisplayManager.setFullscreenState(DisplayManager.getFullscreenState() == 1 ? 0 : DisplayManager.getFullscreenState() + 1);
+            DisplayManager.updateDisplaySetting();
+        }
+        if (InputManager.isKeyTouched(InputManager.KEY_F11)) {
+            Game.takeScreenshot();
+        }
+    }
+
     public static void main(String[] args) {
         if (args.length == 0) {
             System.err.println("No arguments");
@@ -175,40 +283,26 @@ public class Main {
             System.exit(3);
         }
 
-        String[] keys;
-        keys = gameKeeper.getStringArray("Sprite");
-        final Container[] sprites = new Container[keys.length];
-        for (int i = 0; i < sprites.length; i++) {
-            sprites[i] = FPNTDecoder.read(gamePath.resolve("Sprite").resolve(keys[i] + FPNTConstants.EXTENSION).toFile(), new Container());
-        }
-        keys = gameKeeper.getStringArray("Background");
-        final Container[] backgrounds = new Container[keys.length];
-        for (int i = 0; i < backgrounds.length; i++) {
-            backgrounds[i] = FPNTDecoder.read(gamePath.resolve("Background").resolve(keys[i] + FPNTConstants.EXTENSION).toFile(), new Container());
+        //java Main game.fpnt --convert-images
+        if (args.length >= 2 && args[1].equals("--convert-images")) {
+            convertImages(gameKeeper, gamePath);
+            return;
         }
-        keys = gameKeeper.getStringArray("Font");
-        final Container[] fonts = new Container[keys.length];
-        for (int i = 0; i < fonts.length; i++) {
-            fonts[i] = FPNTDecoder.read(gamePath.resolve("Font").resolve(keys[i] + FPNTConstants.EXTENSION).toFile(), new Container());
-        }
-        keys = gameKeeper.getStringArray("Entity");
-        final Container[] entities = new Container[keys.length];
-        for (int i = 0; i < entities.length; i++) {
-            entities[i] = FPNTDecoder.read(gamePath.resolve("Entity").resolve(keys[i] + FPNTConstants.EXTENSION).toFile(), new Container());
-        }
-        keys = gameKeeper.getStringArray("Room");
-        final Container[] rooms = new Container[keys.length];
-        for (int i = 0; i < rooms.length; i++) {
-            rooms[i] = FPNTDecoder.read(gamePath.resolve("Room").resolve(keys[i] + FPNTConstants.EXTENSION).toFile(), new Container());
+
+        //java Main game.fpnt --headless <frames>
+        if (args.length >= 3 && args[1].equals("--headless")) {
+            startHeadless(gameKeeper, gamePath, Integer.parseInt(args[2]), null);
+            return;
         }
 
-        start(gameKeeper, sprites, backgrounds, fonts, entities, rooms);
+        start(gameKeeper, gamePath);
 
         //init
         PyEngine.err.println("Initialization...");
         DisplayManager.init(gameKeeper.getInt(Container.WIDTH), gameKeeper.getInt(Container.HEIGHT), gameKeeper.getString(Container.TITLE), gameKeeper.getBufferedImage(Container.ICON), DisplayManager.WINDOWED_BORDERLESS);
         Game.init();
         Loader.init();
+        ShaderProgram.init();
         MasterRender.init();
         PyEngine.init();
 
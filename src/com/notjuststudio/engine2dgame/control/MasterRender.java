@@ -3,7 +3,6 @@ package com.notjuststudio.engine2dgame.control;
 import com.notjuststudio.engine2dgame.util.Parser;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.util.vector.Matrix3f;
 import org.lwjgl.util.vector.Vector2f;
 import com.notjuststudio.engine2dgame.util.MathUtil;
@@ -20,7 +19,43 @@ class MasterRender {
 
     static ShaderProgram currentShader;
     static Text
-            debug = new Text("default").setSize(20).setColor(Color.WHITE).setAlignV(Text.TOP);
+            debug = new Text("default").setSize(20).setColor(Color.WHITE).setAlignV(Text.TOP),
+            loading = new Text("default").setSize(20).setColor(Color.WHITE).setAlignV(Text.TOP);
+
+    //scratch objects, so steady-state rendering does not allocate
+    private static final MathUtil.Affine2f transformation = new MathUtil.Affine2f();
+    private static final Matrix3f transformationMatrix = new Matrix3f();
+    private static final MathUtil.Affine2f camera = new MathUtil.Affine2f();
+    private static final Matrix3f cameraMatrix = new Matrix3f();
+    private static final List<Entity> animationEntities = new ArrayList<>(2);
+
+    private static final UniformMat3
+            roomTransformation = ShaderProgram.getRoomShader().getUniform("transformationMatrix"),
+            textTransformation = ShaderProgram.getTextShader().getUniform("transformationMatrix"),
+            tileView = ShaderProgram.getTileShader().getUniform("viewMatrix");
+    private static final UniformVec2
+            backgroundOffset = ShaderProgram.getBackgroundShader().getUniform("offset"),
+            backgroundScale = ShaderProgram.getBackgroundShader().getUniform("scale");
+    private static final UniformVec4
+            textColor = ShaderProgram.getTextShader().getUniform("color"),
+            textOutline = ShaderProgram.getTextShader().getUniform("outline"),
+            fillColor = ShaderProgram.getFillColorShader().getUniform("color");
+    private static final UniformFloat
+            textThickness = ShaderProgram.getTextShader().getUniform("thickness"),
+            textEdge = ShaderProgram.getTextShader().getUniform("edge");
+
+    //room rectangle mapped to the current viewport
+    static float
+            cameraX = 0,
+            cameraY = 0;
+    static int
+            cameraWidth = 1,
+            cameraHeight = 1;
+
+    static int
+            drawnEntities = 0,
+            culledEntities = 0,
+            cachedEntities = 0;
 
     static int
             frameID = 0,
@@ -28,27 +63,18 @@ class MasterRender {
     height;
 
     static void init() {
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
         GL11.glEnable(GL11.GL_CULL_FACE);
         GL11.glCullFace(GL11.GL_BACK);
-        GL11.glEnable(GL11.GL_BLEND);
+        GLState.setBlend(true);
         GL11.glDisable(GL11.GL_DEPTH_TEST);
     }
 
     static void render(int target, int width, int height) {
         //prepare vao
         MasterRender.prepareRender();
-
-        if (Room.getCurrentRoom().usingViews) {
-            //render to views
-            MasterRender.renderToViews();
-            //render views
-            MasterRender.renderViews();
-        }
-        else {
-            //render entity
-            MasterRender.renderRoom();
-        }
+        //render entity
+        MasterRender.renderRoom();
         //render room
         MasterRender.renderPostEffect(target, width, height);
         //render unbind
@@ -59,120 +85,182 @@ class MasterRender {
         Loader.bindVao(Loader.getVaoID());
     }
 
-    static void renderToViews() {
-        renderRoom(Loader.getFrameRoomID(), Room.getCurrentRoom().width, Room.getCurrentRoom().height);
-    }
-
-
-    static void renderViews(){
-        List<Room.View> views = Room.getCurrentRoom().views;
+    static void renderRoom() {
+        Room room = Room.getCurrentRoom();
+        //cached tiles are rendered into their own frame buffers first
+        room.layers.update();
+        if (room.usingViews) {
+            for (Room.View view : room.views)
+                room.layers.prepare(view.x, view.y, view.width, view.height);
+        } else {
+            room.layers.prepare(0, 0, room.width, room.height);
+        }
         bindFrameBuffer(Loader.getFrameScreenID(), DisplayManager.width, DisplayManager.height);
-        clearScreen(0f,0.0f,0f,1f);
-        setShader(ShaderProgram.getViewShader());
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, Loader.getFrameRoomTextureID());
-        for (Room.View view : views) {
-            currentShader.loadUniform("transformationMatrix", createTransformationMatrix(view));
-            currentShader.loadUniform("point", new Vector2f(view.x / Room.getCurrentRoom().width, view.y / Room.getCurrentRoom().height));
-            currentShader.loadUniform("size", new Vector2f((float)view.width / Room.getCurrentRoom().width, (float)view.height / Room.getCurrentRoom().height));
-            GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
+        //glClear ignores the viewport, so views are cleared once up front
+        if (room.usingViews || room.background == null)
+            clearScreen(0f,0f,0f,1f);
+        drawnEntities = 0;
+        culledEntities = 0;
+        cachedEntities = 0;
+        if (room.usingViews) {
+            for (Room.View view : room.views) {
+                GLState.viewport((int) view.viewX, (int) view.viewY, view.viewWidth, view.viewHeight);
+                renderCamera(room, view.x, view.y, view.width, view.height);
+            }
+            GLState.viewport(0, 0, DisplayManager.width, DisplayManager.height);
+        } else {
+            renderCamera(room, 0, 0, room.width, room.height);
         }
     }
 
-
-    static void renderRoom() {
-        renderRoom(Loader.getFrameScreenID(), DisplayManager.width, DisplayManager.height);
-    }
-
-    private static void renderRoom(int target, int width, int height) {
-        bindFrameBuffer(target, width, height);
-        if (Room.getCurrentRoom().background != null) {
+    private static void renderCamera(Room room, float x, float y, int width, int height) {
+        setCamera(x, y, width, height);
+        if (room.background != null) {
             setShader(ShaderProgram.getBackgroundShader());
-            Background back = Background.getBackground(Room.getCurrentRoom().background);
+            Background back = Background.getBackground(room.background);
             float xScale, yScale;
             if (back.stretched) {
                 xScale = 1;
                 yScale = 1;
             } else {
-                xScale = Room.getCurrentRoom().width / (float)back.image.getWidth();
-                yScale = Room.getCurrentRoom().height / (float)back.image.getHeight();
+                xScale = room.width / (float)back.width;
+                yScale = room.height / (float)back.height;
             }
-            renderBackground(back.textureID, new Vector2f(xScale, yScale));
-        } else {
-            clearScreen(0f,0f,0f,1f);
+            //only the part of the room background under the camera, texture rows go top down
+            renderBackground(back.texture.use(),
+                    x / room.width * xScale, (1 - (y + height) / room.height) * yScale,
+                    width / (float)room.width * xScale, height / (float)room.height * yScale);
         }
-        setShader(ShaderProgram.getEntityShader());
-        Room.getCurrentRoom().entities.sort(Entity::compareTo);
+        int stamp = room.grid.nextStamp();
+        room.grid.mark(x, y, width, height);
         Draw.isDraw = true;
-        for (Entity entity : Room.getCurrentRoom().entities) {
-            if (entity.isVisible() && entity.sprite != null)
-                renderGUI(entity.sprite.textureID, createTransformationMatrix(entity));
-            entity.draw();
-            setShader(ShaderProgram.getEntityShader());
+        room.lockOrder();
+        try {
+            StaticLayers.Layer drawnLayer = null;
+            int tilemap = 0;
+            for (Entity entity : room.renderOrder) {
+                //tiles go under the entities of the same depth
+                while (tilemap < room.tilemaps.size() && room.tilemaps.get(tilemap).depth <= entity.depth)
+                    renderTilemap(room.tilemaps.get(tilemap++), x, y, width, height);
+                if (entity.isVisible() && entity.sprite != null) {
+                    if (entity.layer != null && entity.layer.ready) {
+                        //a band is contiguous in the render order, its tiles go in place of the first entity
+                        if (entity.layer != drawnLayer) {
+                            drawnLayer = entity.layer;
+                            room.layers.draw(drawnLayer, x, y, width, height);
+                        }
+                        cachedEntities++;
+                    } else if (entity.visibleStamp == stamp) {
+                        SpriteBatch.add(entity.sprite, entity.getRenderX(), entity.getRenderY(), 1, 1, entity.getRenderAngle(), 1, false);
+                        drawnEntities++;
+                    } else {
+                        culledEntities++;
+                    }
+                }
+                if (entity.hasDrawHook)
+                    entity.draw();
+            }
+            while (tilemap < room.tilemaps.size())
+                renderTilemap(room.tilemaps.get(tilemap++), x, y, width, height);
+        } finally {
+            room.unlockOrder();
         }
+        SpriteBatch.flush();
         Draw.isDraw = false;
     }
 
+    private static void renderTilemap(Tilemap tilemap, float x, float y, int width, int height) {
+        SpriteBatch.flush();
+        setShader(ShaderProgram.getTileShader());
+        tileView.load(createCameraMatrix());
+        tilemap.render(x, y, width, height);
+    }
+
     static void renderPostEffect(int target, int width, int height) {
+        int texture = PostProcessing.apply(Loader.getFrameScreenTextureID());
         bindFrameBuffer(target, width, height);
         if (Game.background != null) {
             setShader(ShaderProgram.getBackgroundShader());
             Background back = Background.getBackground(Game.background);
-            renderBackground(back.textureID, new Vector2f(Display.getWidth() / (float)back.image.getWidth(), Display.getHeight() / (float)back.image.getHeight()));
+            renderBackground(back.texture.use(), Display.getWidth() / (float)back.width, Display.getHeight() / (float)back.height);
         } else {
             clearScreen(0f,0f,0f,1f);
         }
-        setShader(ShaderProgram.getRoomShader());
-        float scale = (Display.getWidth()/(float)Display.getHeight())/(DisplayManager.width/(float)DisplayManager.height);
-        currentShader.loadUniform("transformationMatrix", MathUtil.createScaleMatrix(new Vector2f(
-                scale < 1 ? 1 : 1/scale,
-                scale < 1 ? scale : 1
-        )));
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, Loader.getFrameScreenTextureID());
-        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
+        //the effects run before the target is bound, the last one draws straight into it
+        if (!PostProcessing.present(texture, createScreenScaleMatrix())) {
+            setShader(ShaderProgram.getRoomShader());
+            roomTransformation.load(createScreenScaleMatrix());
+            GLState.bindTexture(texture);
+            drawQuad();
+        }
         renderDebug();
     }
 
     static void renderRoomAnimation() {
         bindFrameBuffer(Loader.getFrameScreenID(), Display.getWidth(), Display.getHeight());
+        setRoomCamera();
         Draw.isDraw = true;
-        List<Entity> list = new ArrayList<>();
+        List<Entity> list = animationEntities;
+        list.clear();
         list.add(Room.roomAnimation.getEntity("prevRoom"));
         list.add(Room.roomAnimation.getEntity("nextRoom"));
         list.sort(Entity::compareTo);
-        for (Entity entity : list) {
-            ((Entity.Methods)entity)._draw_();
+        for (int i = 0; i < list.size(); i++) {
+            ((Entity.Methods)list.get(i))._draw_();
         }
+        SpriteBatch.flush();
         Draw.isDraw = false;
-        bindFrameBuffer(0, Display.getWidth(), Display.getHeight());
-        if (Game.background != null) {
-            setShader(ShaderProgram.getBackgroundShader());
-            Background back = Background.getBackground(Game.background);
-            renderBackground(back.textureID, new Vector2f(Display.getWidth() / (float)back.image.getWidth(), Display.getHeight() / (float)back.image.getHeight()));
-        } else {
-            clearScreen(0f,0f,0f,1f);
-        }
-        setShader(ShaderProgram.getUpsideDownPartShader());
-        float scale = (Display.getWidth()/(float)Display.getHeight())/(DisplayManager.width/(float)DisplayManager.height);
-        currentShader.loadUniform("transformationMatrix", MathUtil.createScaleMatrix(new Vector2f(
-                scale < 1 ? 1 : 1/scale,
-                scale < 1 ? scale : 1
-        )));
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, Loader.getFrameScreenTextureID());
-        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
-        renderDebug();
+        renderPostEffect(0, Display.getWidth(), Display.getHeight());
+    }
+
+    static void renderLoading(float progress) {
+        int width = Display.getWidth();
+        int height = Display.getHeight();
+        bindFrameBuffer(0, width, height);
+        clearScreen(0f,0f,0f,1f);
+
+        //the fill shader covers the whole viewport, so the bar is drawn by moving the viewport
+        int barWidth = width / 2;
+        int barHeight = Math.max(4, height / 90);
+        int barX = (width - barWidth) / 2;
+        int barY = (height - barHeight) / 2;
+        setShader(ShaderProgram.getFillColorShader());
+        GLState.viewport(barX, barY, barWidth, barHeight);
+        fillColor.load(0.25f, 0.25f, 0.25f, 1f);
+        drawQuad();
+        GLState.viewport(barX, barY, (int) (barWidth * Math.min(1, progress)), barHeight);
+        fillColor.load(1f, 1f, 1f, 1f);
+        drawQuad();
+        GLState.viewport(0, 0, width, height);
+
+        setCamera(0, 0, width, height);
+        Draw.isDraw = true;
+        Draw.text(barX, barY - barHeight, loading.setText(String.format("Loading... %d%%", (int) (progress * 100))));
+        Draw.isDraw = false;
+        closeRender();
     }
 
     static void renderDebug() {
         if (!Game.debug) return;
+        setRoomCamera();
         Draw.isDraw = true;
         long totalMemory = Game.getTotalMemory();
         Draw.text(0, Room.getHeight(), debug.setText(
                 Game.gpuRenderer + "\n" +
                         String.format("Memory usage: %.2f", (totalMemory / (double)Game.maxMemory) * 100) + "% (" + Parser.parsMemorySize(totalMemory, Parser.MEGA) + "/" + Parser.parsMemorySize(Game.maxMemory, Parser.MEGA) + ")\n" +
-                        String.format("FPS: %.2f\n", DisplayManager.getFPS()) +
+                        String.format("FPS: %.2f", DisplayManager.getFPS()) +
+                        (Simulation.isFixed() ? String.format(", steps at %.0f Hz, %d dropped\n", Simulation.tickRate, Simulation.getDroppedSteps()) : "\n") +
+                        String.format("Frame: %.2f mean, %.2f p50, %.2f p95, %.2f p99, %.2f max ms\n",
+                                DisplayManager.getMeanFrameTime(), DisplayManager.getFrameTime(0.5), DisplayManager.getFrameTime(0.95),
+                                DisplayManager.getFrameTime(0.99), DisplayManager.getMaxFrameTime()) +
+                        "State changes: " + GLState.getIssued() + " issued, " + GLState.getRequested() + " requested\n" +
+                        "Entities: " + drawnEntities + " drawn, " + culledEntities + " culled, " + cachedEntities + " cached in " + StaticLayers.getTileCount() + " tiles\n" +
+                        "Uniforms: " + ShaderProgram.getIssuedUploads() + " issued, " + ShaderProgram.getSkippedUploads() + " skipped\n" +
+                        "Textures: " + Parser.parsMemorySize(TextureManager.getResidentBytes(), Parser.MEGA) + "/" + Parser.parsMemorySize(TextureManager.budget, Parser.MEGA) +
+                        " resident, " + TextureManager.getLoads() + " loaded, " + TextureManager.getEvictions() + " evicted, " +
+                        TextureManager.getStalls() + String.format(" stalls (%.1f ms)\n", TextureManager.getStallTime() / 1e6) +
+                        "Animations: " + Animator.getCount() + " playing\n" +
+                        "Render targets: " + RenderTargetPool.getActiveCount() + " active, " + RenderTargetPool.getCreated() + " created, " + RenderTargetPool.getReused() + " reused\n" +
                         "Current state: " + (Room.isChanging ? "changing \"" : "room \"" + Room.getCurrentRoom().name + "\"")
         ));
         Draw.isDraw = false;
@@ -188,33 +276,35 @@ class MasterRender {
         currentShader.useThis();
     }
 
-    private static void renderBackground(int ID, Vector2f scale) {
-        currentShader.loadUniform("scale", scale);
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, ID);
-        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
+    private static void renderBackground(int ID, float xScale, float yScale) {
+        renderBackground(ID, 0, 0, xScale, yScale);
     }
 
-    static void renderGUI(int ID, Matrix3f transformationMatrix) {
-        currentShader.loadUniform("transformationMatrix", transformationMatrix);
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, ID);
-        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
+    private static void renderBackground(int ID, float xOffset, float yOffset, float xScale, float yScale) {
+        backgroundOffset.load(xOffset, yOffset);
+        backgroundScale.load(xScale, yScale);
+        GLState.bindTexture(ID);
+        drawQuad();
     }
 
     static void renderText(Text text, Matrix3f transformationMatrix) {
+        if (text.count == 0)
+            return;
+        SpriteBatch.flush();
         Loader.bindVao(text.vaoID);
         setShader(ShaderProgram.getTextShader());
-        currentShader.loadUniform("transformationMatrix", transformationMatrix);
-        currentShader.loadUniform("color", text.color);
-        currentShader.loadUniform("outline", text.outline);
-        currentShader.loadUniform("thickness", text.thickness);
-        currentShader.loadUniform("edge", text.edge);
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, text.font.textureID);
+        textTransformation.load(transformationMatrix);
+        textColor.load(text.color);
+        textOutline.load(text.outline);
+        textThickness.load(text.thickness);
+        textEdge.load(text.edge);
+        GLState.bindTexture(text.font.region.texture.use());
         GL11.glDrawElements(GL11.GL_TRIANGLES, text.count * 6, GL11.GL_UNSIGNED_INT, 0);
-        ShaderProgram.useNone();
-        prepareRender();
+    }
+
+    static void drawQuad() {
+        Loader.bindVao(Loader.getVaoID());
+        GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
     }
 
     static void closeRender() {
@@ -229,67 +319,34 @@ class MasterRender {
         MasterRender.height = height;
     }
 
-    private static Matrix3f createTransformationMatrix(Entity entity) {
-        return createTransformationMatrix(
-                entity.getX(), entity.getY(),
-                1,1,
-                entity.getSprite_angle(),
-                entity.sprite.getWidth(), entity.sprite.getHeight(),
-                entity.sprite.xOffset, entity.sprite.yOffset,
-                0, 0,
-                Room.getCurrentRoom().width, Room.getCurrentRoom().height
-        );
+    static void setCamera(float x, float y, int width, int height) {
+        //queued sprites were placed for the previous camera
+        SpriteBatch.flush();
+        cameraX = x;
+        cameraY = y;
+        cameraWidth = width;
+        cameraHeight = height;
     }
 
-    private static Matrix3f createTransformationMatrix(Room.View view) {
-        return createTransformationMatrix(
-                view.viewX, view.viewY,
-                1,1,
-                0,
-                view.viewWidth, view.viewHeight,
-                0, 0,
-                0,0,
-                DisplayManager.width, DisplayManager.height
-        );
+    static void setRoomCamera() {
+        setCamera(0, 0, Room.getCurrentRoom().width, Room.getCurrentRoom().height);
     }
 
-    private static Matrix3f createTransformationMatrix(Text.Char character, Text text, int width, int height) {
-        return createTransformationMatrix(
-                character.x, character.y,
-                1,1,
-                0,
-                (int)Math.floor(text.font.getCharacter(character.id).width * text.scale),
-                (int)Math.floor(text.font.getCharacter(character.id).height * text.scale),
-//                0,0,
-                (int)Math.floor(text.font.getCharacter(character.id).xOffset * text.scale),
-                (int)Math.floor(text.font.getCharacter(character.id).yOffset * text.scale),
-                0,0,
-                width, height
-        );
+    static Matrix3f createCameraMatrix() {
+        return camera.setCamera(cameraX, cameraY, cameraWidth, cameraHeight).store(cameraMatrix);
     }
 
     static Matrix3f createTransformationMatrix(float x, float y, float xScale, float yScale,float angle, int textureWidth, int textureHeight, int xOffset, int yOffset, float roomX, float roomY, int roomWidth, int roomHeight) {
+        //the returned matrix is shared, it stays valid until the next call
+        return transformation.set(x, y, xScale, yScale, angle, textureWidth, textureHeight, xOffset, yOffset, roomX, roomY, roomWidth, roomHeight)
+                .store(transformationMatrix);
+    }
 
-//        Vector3f scale3f = entity.getScale();
-//        Vector2f scale = new Vector2f(scale3f.getX() * width/dataWidth, scale3f.getY() * height/dataHeight);
-
-        Matrix3f result = MathUtil.createTranslationMatrix(new Vector2f((x - roomX) * 2 / roomWidth - 1, (y - roomY) * 2 / roomHeight - 1));
-
-        Matrix3f.mul(result, MathUtil.createScaleMatrix(new Vector2f(
-                textureWidth / (float) roomWidth,
-                textureHeight / (float) roomHeight
-        )), result);
-
-
-        Matrix3f.mul(result, MathUtil.createRotationMatrix(angle), result);
-
-        Matrix3f.mul(result, MathUtil.createScaleMatrix(new Vector2f(xScale, yScale)), result);
-
-        Matrix3f.mul(result, MathUtil.createTranslationMatrix(new Vector2f(
-                1 - xOffset * 2f / textureWidth,
-                1 - yOffset * 2f / textureHeight
-        )), result);
-
-        return result;
+    private static Matrix3f createScreenScaleMatrix() {
+        float scale = (Display.getWidth()/(float)Display.getHeight())/(DisplayManager.width/(float)DisplayManager.height);
+        return transformation.setScale(
+                scale < 1 ? 1 : 1/scale,
+                scale < 1 ? scale : 1
+        ).store(transformationMatrix);
     }
 }
@@ -0,0 +1,121 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full screen pass, registered with {@link Game#addPostEffect}.
+ * The code is a glsl block that writes {@code vec4 color}, it may read {@code vec2 uv}, {@code vec2 texel}
+ * and its parameters by name. A per pixel pass gets {@code color} already sampled and is fused with its neighbours,
+ * any other pass samples {@code sampler2D source} itself and starts a new render.
+ */
+public class PostEffect {
+
+    private final String name;
+    private final String code;
+    private final boolean perPixel;
+    private boolean enabled = true;
+
+    //a float[1] is a float uniform, a float[4] is a vec4
+    final List<String> parameters = new ArrayList<>();
+    final List<float[]> values = new ArrayList<>();
+
+    public PostEffect(String name, String code, boolean perPixel) {
+        this.name = name;
+        this.code = code;
+        this.perPixel = perPixel;
+    }
+
+    public static PostEffect grade(float brightness, float contrast, float saturation) {
+        return new PostEffect("grade",
+                "color.rgb = (color.rgb - 0.5) * contrast + 0.5 + brightness;\n" +
+                "color.rgb = mix(vec3(dot(color.rgb, vec3(0.299, 0.587, 0.114))), color.rgb, saturation);",
+                true)
+                .set("brightness", brightness)
+                .set("contrast", contrast)
+                .set("saturation", saturation);
+    }
+
+    public static PostEffect tint(Color color) {
+        return new PostEffect("tint", "color.rgb = mix(color.rgb, color.rgb * tint.rgb, tint.a);", true)
+                .set("tint", color);
+    }
+
+    public static PostEffect vignette(float strength, float radius) {
+        return new PostEffect("vignette",
+                "color.rgb *= 1.0 - strength * smoothstep(radius, radius + 0.4, distance(uv, vec2(0.5)));",
+                true)
+                .set("strength", strength)
+                .set("radius", radius);
+    }
+
+    public static PostEffect blur(float radius) {
+        return new PostEffect("blur",
+                "color = vec4(0.0);\n" +
+                "for (int x = -2; x <= 2; x++)\n" +
+                "    for (int y = -2; y <= 2; y++)\n" +
+                "        color += texture(source, uv + vec2(x, y) * texel * radius / 2.0);\n" +
+                "color /= 25.0;",
+                false)
+                .set("radius", radius);
+    }
+
+    public PostEffect set(String parameter, float value) {
+        values(parameter, 1)[0] = value;
+        return this;
+    }
+
+    public PostEffect set(String parameter, float x, float y, float z, float w) {
+        float[] value = values(parameter, 4);
+        value[0] = x;
+        value[1] = y;
+        value[2] = z;
+        value[3] = w;
+        return this;
+    }
+
+    public PostEffect set(String parameter, Color color) {
+        return set(parameter, color.getRed() / 255f, color.getGreen() / 255f, color.getBlue() / 255f, color.getAlpha() / 255f);
+    }
+
+    //changing a value is free, a new parameter changes the generated shader
+    private float[] values(String parameter, int size) {
+        int index = parameters.indexOf(parameter);
+        if (index >= 0 && values.get(index).length == size)
+            return values.get(index);
+        float[] result = new float[size];
+        if (index >= 0) {
+            values.set(index, result);
+        } else {
+            parameters.add(parameter);
+            values.add(result);
+        }
+        PostProcessing.invalidate();
+        return result;
+    }
+
+    public PostEffect setEnabled(boolean enabled) {
+        if (this.enabled != enabled) {
+            this.enabled = enabled;
+            PostProcessing.invalidate();
+        }
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isPerPixel() {
+        return perPixel;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getCode() {
+        return code;
+    }
+}
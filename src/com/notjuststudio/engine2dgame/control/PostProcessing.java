@@ -0,0 +1,203 @@
+package com.notjuststudio.engine2dgame.control;
+
+import com.notjuststudio.engine2dgame.util.Parser;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.util.vector.Matrix3f;
+
+import java.util.*;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class PostProcessing {
+
+    private static final Matrix3f IDENTITY = new Matrix3f();
+
+    private static final List<PostEffect> chain = new ArrayList<>();
+    //enabled effects fused into as few renders as the sampling passes allow
+    private static final List<Pass> passes = new ArrayList<>();
+    //generated fragment source to program, so toggling an effect back does not recompile
+    private static final Map<String, Pass> programs = new HashMap<>();
+    private static boolean dirty = false;
+
+    private static String vertex;
+    private static final RenderTargetPool.Target[] targets = new RenderTargetPool.Target[2];
+
+    static void add(PostEffect effect) {
+        chain.add(effect);
+        invalidate();
+    }
+
+    static void remove(PostEffect effect) {
+        if (chain.remove(effect))
+            invalidate();
+    }
+
+    static void removeAll() {
+        chain.clear();
+        invalidate();
+    }
+
+    static void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Runs every pass but the last into the ping-pong targets, returns the texture the last pass reads.
+     */
+    static int apply(int texture) {
+        if (dirty)
+            rebuild();
+        if (passes.size() < 2)
+            return texture;
+        int width = DisplayManager.width;
+        int height = DisplayManager.height;
+        GLState.setBlend(false);
+        for (int i = 0; i < passes.size() - 1; i++) {
+            RenderTargetPool.Target target = targets[i % 2];
+            if (target == null)
+                targets[i % 2] = target = RenderTargetPool.acquire(width, height, GL11.GL_RGBA8, "postEffect");
+            MasterRender.bindFrameBuffer(target.framebufferID, width, height);
+            passes.get(i).draw(texture, IDENTITY, width, height);
+            texture = target.textureID;
+        }
+        GLState.setBlend(true);
+        return texture;
+    }
+
+    /**
+     * Draws the last pass into the bound frame buffer, returns false when there is nothing to draw.
+     */
+    static boolean present(int texture, Matrix3f transformation) {
+        for (int i = 0; i < targets.length; i++) {
+            RenderTargetPool.release(targets[i]);
+            targets[i] = null;
+        }
+        if (passes.isEmpty())
+            return false;
+        passes.get(passes.size() - 1).draw(texture, transformation, DisplayManager.width, DisplayManager.height);
+        return true;
+    }
+
+    private static void rebuild() {
+        dirty = false;
+        passes.clear();
+        List<PostEffect> group = new ArrayList<>();
+        for (PostEffect effect : chain) {
+            if (!effect.isEnabled())
+                continue;
+            //a sampling pass needs everything before it in a texture
+            if (!effect.isPerPixel() && !group.isEmpty()) {
+                passes.add(compile(group));
+                group.clear();
+            }
+            group.add(effect);
+        }
+        if (!group.isEmpty())
+            passes.add(compile(group));
+    }
+
+    private static Pass compile(List<PostEffect> group) {
+        StringBuilder uniforms = new StringBuilder();
+        StringBuilder body = new StringBuilder();
+        if (group.get(0).isPerPixel())
+            body.append("    color = texture(source, uv);\n");
+        for (int i = 0; i < group.size(); i++) {
+            PostEffect effect = group.get(i);
+            body.append("    {\n");
+            for (int j = 0; j < effect.parameters.size(); j++) {
+                String type = effect.values.get(j).length == 1 ? "float" : "vec4";
+                String name = effect.parameters.get(j);
+                uniforms.append("uniform ").append(type).append(" p").append(i).append('_').append(name).append(";\n");
+                body.append("        ").append(type).append(' ').append(name).append(" = p").append(i).append('_').append(name).append(";\n");
+            }
+            body.append("        ").append(effect.getCode().replace("\n", "\n        ")).append("\n    }\n");
+        }
+        String fragment = "#version 330\n\n" +
+                "in vec2 textureCoords;\n\n" +
+                "uniform sampler2D source;\n" +
+                "uniform vec2 texel;\n" +
+                uniforms + "\n" +
+                "out vec4 out_Color;\n\n" +
+                "void main() {\n" +
+                "    vec2 uv = vec2(textureCoords.x, 1.0 - textureCoords.y);\n" +
+                "    vec4 color;\n" +
+                body +
+                "    out_Color = color;\n" +
+                "}\n";
+
+        Pass cached = programs.get(fragment);
+        if (cached == null) {
+            if (vertex == null)
+                vertex = Parser.parseFile(ShaderProgram.DEFAULT_PATH + "partVertex.glsl");
+            List<Uniform> list = new ArrayList<>();
+            list.add(new UniformMat3("transformationMatrix"));
+            list.add(new UniformVec2("texel"));
+            for (int i = 0; i < group.size(); i++) {
+                PostEffect effect = group.get(i);
+                for (int j = 0; j < effect.parameters.size(); j++) {
+                    String name = "p" + i + "_" + effect.parameters.get(j);
+                    list.add(effect.values.get(j).length == 1 ? new UniformFloat(name) : new UniformVec4(name));
+                }
+            }
+            cached = new Pass(new ShaderProgram(vertex, fragment, list.toArray(new Uniform[list.size()])));
+            programs.put(fragment, cached);
+        }
+        return cached.with(group);
+    }
+
+    static void clear() {
+        chain.clear();
+        passes.clear();
+        programs.clear();
+        for (int i = 0; i < targets.length; i++) {
+            RenderTargetPool.release(targets[i]);
+            targets[i] = null;
+        }
+    }
+
+    private static class Pass {
+        private final ShaderProgram shader;
+        private final UniformMat3 transformation;
+        private final UniformVec2 texel;
+        private PostEffect[] effects;
+        private Uniform[][] parameters;
+
+        private Pass(ShaderProgram shader) {
+            this.shader = shader;
+            transformation = shader.getUniform("transformationMatrix");
+            texel = shader.getUniform("texel");
+        }
+
+        //a program is shared by every group with the same generated source, the effects are not
+        private Pass with(List<PostEffect> group) {
+            Pass result = new Pass(shader);
+            result.effects = group.toArray(new PostEffect[group.size()]);
+            result.parameters = new Uniform[group.size()][];
+            for (int i = 0; i < group.size(); i++) {
+                PostEffect effect = group.get(i);
+                result.parameters[i] = new Uniform[effect.parameters.size()];
+                for (int j = 0; j < effect.parameters.size(); j++)
+                    result.parameters[i][j] = shader.getUniform("p" + i + "_" + effect.parameters.get(j));
+            }
+            return result;
+        }
+
+        private void draw(int texture, Matrix3f matrix, int width, int height) {
+            MasterRender.setShader(shader);
+            transformation.load(matrix);
+            texel.load(1f / width, 1f / height);
+            for (int i = 0; i < effects.length; i++) {
+                for (int j = 0; j < parameters[i].length; j++) {
+                    float[] value = effects[i].values.get(j);
+                    if (value.length == 1)
+                        ((UniformFloat) parameters[i][j]).load(value[0]);
+                    else
+                        ((UniformVec4) parameters[i][j]).load(value[0], value[1], value[2], value[3]);
+                }
+            }
+            GLState.bindTexture(texture);
+            MasterRender.drawQuad();
+        }
+    }
+}
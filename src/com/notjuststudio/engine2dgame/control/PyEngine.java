@@ -1,5 +1,8 @@
 package com.notjuststudio.engine2dgame.control;
 
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
 import org.python.core.PyCode;
 import org.python.core.PyObject;
 import org.python.util.PythonInterpreter;
@@ -83,8 +86,22 @@ public class PyEngine {
         return pyInterpreter.get(name, javaClass);
     }
 
+    /**
+     * Compiles without touching the interpreter, asset decoder threads call it in parallel.
+     */
     static PyCode compile(String script) {
-        return pyInterpreter.compile(script);
+        //flags of its own for every call, the interpreter ones are shared
+        return Py.compile_flags(script, "<script>", CompileMode.exec, new CompilerFlags());
+    }
+
+    /**
+     * Runs code that defines the class __tmp__ and returns the class, the name is freed again.
+     */
+    static PyObject defineClass(PyCode script) {
+        pyInterpreter.exec(script);
+        PyObject result = pyInterpreter.get("__tmp__");
+        pyInterpreter.exec("del __tmp__");
+        return result;
     }
 
     static PythonInterpreter getTmpInterpreter() {
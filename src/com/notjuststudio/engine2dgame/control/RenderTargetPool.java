@@ -0,0 +1,128 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.*;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class RenderTargetPool {
+
+    //released targets of one kind kept around for reuse, the rest are deleted
+    static int maxIdle = 2;
+
+    private static final Map<Key, Deque<Target>> idle = new HashMap<>();
+    private static final Set<Target> active = new LinkedHashSet<>();
+
+    private static int created = 0;
+    private static int reused = 0;
+
+    /**
+     * Hands out a framebuffer with a colour texture, the owner shows up in the leak report until it is released.
+     */
+    static Target acquire(int width, int height, int format, String owner) {
+        Key key = new Key(width, height, format);
+        Deque<Target> queue = idle.get(key);
+        Target result = queue == null ? null : queue.poll();
+        if (result == null) {
+            result = new Target(key);
+            result.framebufferID = Loader.createFrameBuffer();
+            result.textureID = Loader.createTextureAttachment(width, height, format);
+            Loader.bindDefaultFrameBuffer();
+            created++;
+        } else {
+            reused++;
+        }
+        result.owner = owner;
+        active.add(result);
+        return result;
+    }
+
+    static void release(Target target) {
+        if (target == null || !active.remove(target))
+            return;
+        target.owner = null;
+        Deque<Target> queue = idle.computeIfAbsent(target.key, key -> new ArrayDeque<>());
+        if (queue.size() < maxIdle)
+            queue.add(target);
+        else
+            delete(target);
+    }
+
+    private static void delete(Target target) {
+        GLState.deleteFramebuffer(target.framebufferID);
+        GLState.deleteTexture(target.textureID);
+        target.framebufferID = 0;
+        target.textureID = 0;
+    }
+
+    static int getActiveCount() {
+        return active.size();
+    }
+
+    static int getCreated() {
+        return created;
+    }
+
+    static int getReused() {
+        return reused;
+    }
+
+    /**
+     * Deletes every target, the ones still acquired are reported as leaks.
+     */
+    static void clear() {
+        for (Target target : active) {
+            PyEngine.err.println("Render target leaked: " + target.owner + " (" + target.key.width + "x" + target.key.height + ")");
+            delete(target);
+        }
+        active.clear();
+        for (Deque<Target> queue : idle.values())
+            queue.forEach(RenderTargetPool::delete);
+        idle.clear();
+    }
+
+    static class Target {
+        private final Key key;
+        private String owner;
+
+        int framebufferID;
+        int textureID;
+
+        private Target(Key key) {
+            this.key = key;
+        }
+
+        int getWidth() {
+            return key.width;
+        }
+
+        int getHeight() {
+            return key.height;
+        }
+    }
+
+    private static class Key {
+        private final int width;
+        private final int height;
+        private final int format;
+
+        private Key(int width, int height, int format) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * width + height) + format;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return width == other.width && height == other.height && format == other.format;
+        }
+    }
+}
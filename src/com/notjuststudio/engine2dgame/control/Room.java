@@ -5,7 +5,7 @@ import com.notjuststudio.engine2dgame.util.ImageLoader;
 import com.notjuststudio.engine2dgame.util.Parser;
 import com.notjuststudio.fpnt.FPNTDecoder;
 import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL11;
 
 import java.io.File;
 import java.util.*;
@@ -26,12 +26,16 @@ public class Room {
             PREVIOUS = 3;
 
     static boolean hasAnimation = false;
-    static Animation roomAnimation = null;
+    static AnimationPlayer roomAnimation = null;
     static float endTime = 0;
     static float time = 0;
 
     static boolean isChanging = false;
 
+    //snapshots the transition animation draws, held until it ends
+    private static RenderTargetPool.Target prevTarget;
+    private static RenderTargetPool.Target nextTarget;
+
     private static Map<String, RoomTemplate> roomMap = new HashMap<>();
 
     String name;
@@ -39,13 +43,31 @@ public class Room {
     int width;
     int height;
 
+    //creation order
     List<Entity> entities;
+    //entities with a step hook, in creation order
+    final List<Entity> steppers = new ArrayList<>();
+    private static final Comparator<Entity> STEP_ORDER = (a, b) -> Long.compare(a.order, b.order);
+    //sorted by depth, then by creation order, kept up to date on every change
+    List<Entity> renderOrder;
+    private long entityCounter = 0;
+    private boolean orderLocked = false;
+    //an entity changed twice while locked is queued once
+    private final Set<Entity> pendingOrder = new LinkedHashSet<>();
+    SpatialGrid grid;
+    StaticLayers layers;
 
     boolean usingViews;
     List<View> views;
 
     String background;
 
+    //sorted by depth, drawn in between the entities
+    final List<Tilemap> tilemaps = new ArrayList<>();
+
+    //textures this room keeps resident while it is on the stack
+    private final Set<TextureManager.Texture> textures = new HashSet<>();
+
     static void loadRoom(String id, File filePath) {
         final Container tmp = FPNTDecoder.read(filePath, new Container());
         loadRoom(id, tmp);
@@ -82,6 +104,9 @@ public class Room {
 
         result.background = tmp.getString(Container.BACKGROUND);
 
+        final List<Container.Tilemap> tilemaps = tmp.getTilemapList(Container.LIST);
+        result.tilemaps = tilemaps == null ? Collections.emptyList() : tilemaps;
+
         roomMap.put(id, result);
     }
 
@@ -91,6 +116,8 @@ public class Room {
 
         result.width = template.width;
         result.height = template.height;
+        result.grid = new SpatialGrid(result.width, result.height);
+        result.layers = new StaticLayers(result);
 
         for (EntityTemplate entity : template.entities) {
             Instance.instanceCreate(entity.x, entity.y, entity.id, result);
@@ -104,22 +131,154 @@ public class Room {
 
         result.background = template.background;
 
+        for (Container.Tilemap tilemap : template.tilemaps)
+            result.tilemaps.add(new Tilemap(tilemap));
+        result.tilemaps.sort((a, b) -> Float.compare(a.depth, b.depth));
+
         result.name = id;
 
+        result.collectTextures(template);
+        TextureManager.acquire(result.textures);
+
         roomStack.add(result);
         result.init();
-        Loader.clearFrames();
-        Loader.createRoom(result);
         DisplayManager.updateDisplaySetting();
     }
 
+    private void collectTextures(RoomTemplate template) {
+        if (background != null && Background.getBackground(background) != null)
+            textures.add(Background.getBackground(background).texture);
+        for (Tilemap tilemap : tilemaps)
+            if (tilemap.tileset != null)
+                textures.add(tilemap.tileset.region.texture);
+        for (EntityTemplate entity : template.entities) {
+            String sprite = Entity.getTemplateSprite(entity.id);
+            if (sprite != null && Sprite.getSprite(sprite) != null)
+                textures.add(Sprite.getSprite(sprite).region.texture);
+        }
+        textures.remove(TextureManager.NONE);
+    }
+
     void clear() {
+        TextureManager.release(textures);
+        textures.clear();
+        for (Entity entity : entities) {
+            entity.stopPlayers();
+            entity.room = null;
+            entity.inGrid = false;
+            entity.layer = null;
+        }
         entities.clear();
+        steppers.clear();
+        grid.clear();
+        layers.clear();
+        for (Tilemap tilemap : tilemaps)
+            tilemap.clear();
+        tilemaps.clear();
+        renderOrder.clear();
+        pendingOrder.clear();
     }
 
     private Room() {
         this.views = new ArrayList<>();
         this.entities = new ArrayList<>();
+        this.renderOrder = new ArrayList<>();
+    }
+
+    void addEntity(Entity entity) {
+        entity.room = this;
+        entity.order = entityCounter++;
+        entities.add(entity);
+        if (entity.hasStepHook)
+            steppers.add(entity);
+        //it did not move from anywhere
+        entity.savePrevious();
+        grid.update(entity);
+        layers.invalidate(entity);
+        if (orderLocked)
+            pendingOrder.add(entity);
+        else
+            insertOrdered(entity);
+    }
+
+    void removeEntity(Entity entity) {
+        if (!entities.remove(entity))
+            return;
+        if (entity.hasStepHook)
+            removeStepper(entity);
+        layers.invalidate(entity);
+        grid.remove(entity);
+        entity.layer = null;
+        if (orderLocked)
+            pendingOrder.add(entity);
+        else
+            removeOrdered(entity);
+        entity.room = null;
+    }
+
+    void updateStepper(Entity entity) {
+        if (entity.hasStepHook) {
+            int index = Collections.binarySearch(steppers, entity, STEP_ORDER);
+            if (index < 0)
+                steppers.add(-index - 1, entity);
+        } else {
+            removeStepper(entity);
+        }
+    }
+
+    private void removeStepper(Entity entity) {
+        int index = Collections.binarySearch(steppers, entity, STEP_ORDER);
+        if (index >= 0)
+            steppers.remove(index);
+    }
+
+    void setDepth(Entity entity, float depth) {
+        layers.invalidate(entity);
+        setOrder(entity, depth);
+        layers.invalidate(entity);
+    }
+
+    private void setOrder(Entity entity, float depth) {
+        if (orderLocked) {
+            entity.depth = depth;
+            pendingOrder.add(entity);
+        } else {
+            removeOrdered(entity);
+            entity.depth = depth;
+            insertOrdered(entity);
+        }
+    }
+
+    /**
+     * While locked the render order is being iterated, changes are queued and applied on unlock.
+     */
+    void lockOrder() {
+        orderLocked = true;
+    }
+
+    void unlockOrder() {
+        orderLocked = false;
+        if (pendingOrder.isEmpty())
+            return;
+        //their depths changed in place, the order is only sorted again once all of them are out
+        renderOrder.removeIf(pendingOrder::contains);
+        for (Entity entity : pendingOrder) {
+            if (entity.room == this)
+                insertOrdered(entity);
+        }
+        pendingOrder.clear();
+    }
+
+    private void insertOrdered(Entity entity) {
+        int index = Collections.binarySearch(renderOrder, entity);
+        if (index < 0)
+            renderOrder.add(-index - 1, entity);
+    }
+
+    private void removeOrdered(Entity entity) {
+        int index = Collections.binarySearch(renderOrder, entity);
+        if (index >= 0)
+            renderOrder.remove(index);
     }
 
     void init() {
@@ -194,6 +353,8 @@ public class Room {
         private List<ViewTemplate> views;
 
         private String background;
+
+        private List<Container.Tilemap> tilemaps;
     }
 
     private static class EntityTemplate {
@@ -212,19 +373,21 @@ public class Room {
     static void changeRoom() {
         if (changingRoomState == NOT_CHANGING)
             return;
-        if (hasAnimation) {
-            endTime = roomAnimation.endTime;
+        //headless rooms change at once, there is nothing to snapshot
+        if (hasAnimation && !Game.headless) {
+            endTime = roomAnimation.clip.endTime;
             isChanging = true;
 
-            int id = Loader.createFrameBuffer();
-            int texture = Loader.createTextureAttachment(Display.getWidth(), Display.getHeight());
+            //a transition started before the last one finished hands its targets back first
+            releaseTransition();
+            prevTarget = RenderTargetPool.acquire(Display.getWidth(), Display.getHeight(), GL11.GL_RGBA8, "prevRoom");
             final boolean tmp = Game.debug;
             Game.debug = false;
-            MasterRender.render(id, Display.getWidth(), Display.getHeight());
+            MasterRender.render(prevTarget.framebufferID, Display.getWidth(), Display.getHeight());
             Game.debug = tmp;
             Entity prev = roomAnimation.getEntity("prevRoom");
             prev.init();
-            prev.sprite = new Sprite(texture, Display.getWidth(), Display.getHeight());
+            prev.sprite = new Sprite(prevTarget.textureID, Display.getWidth(), Display.getHeight());
             prev.sprite.isFlipped = true;
             prev.sprite.xOffset = Room.getWidth()/2;
             prev.sprite.yOffset = Room.getHeight()/2;
@@ -241,28 +404,57 @@ public class Room {
                 roomStack.remove().clear();
                 break;
         }
-        if (hasAnimation && roomStack.size() != 0) {
-            int id = Loader.createFrameBuffer();
-            int texture = Loader.createTextureAttachment(Display.getWidth(), Display.getHeight());
+        if (hasAnimation && !Game.headless && roomStack.size() != 0) {
+            nextTarget = RenderTargetPool.acquire(Display.getWidth(), Display.getHeight(), GL11.GL_RGBA8, "nextRoom");
             final boolean tmp = Game.debug;
             Game.debug = false;
-            MasterRender.render(id, Display.getWidth(), Display.getHeight());
+            MasterRender.render(nextTarget.framebufferID, Display.getWidth(), Display.getHeight());
             Game.debug = tmp;
             Entity next = roomAnimation.getEntity("nextRoom");
             next.init();
-            next.sprite = new Sprite(texture, Display.getWidth(), Display.getHeight());
+            next.sprite = new Sprite(nextTarget.textureID, Display.getWidth(), Display.getHeight());
             next.sprite.isFlipped = true;
             next.sprite.xOffset = Room.getWidth()/2;
             next.sprite.yOffset = Room.getHeight()/2;
-            GL30.glDeleteFramebuffers(id);
         }
         if (roomStack.size() == 0) {
             DisplayManager.closeRequest();
         }
         changingRoomState = NOT_CHANGING;
+        Simulation.reset();
         DisplayManager.resetLastFrameTime();
     }
 
+    /**
+     * Hands the snapshots of a finished transition back to the pool.
+     */
+    static void releaseTransition() {
+        RenderTargetPool.release(prevTarget);
+        RenderTargetPool.release(nextTarget);
+        prevTarget = null;
+        nextTarget = null;
+    }
+
+    /**
+     * Tile index in a tilemap of the current room, -1 when it is empty or outside the map.
+     */
+    public static int getTile(int tilemap, int column, int row) {
+        Room room = getCurrentRoom();
+        if (room == null || tilemap < 0 || tilemap >= room.tilemaps.size())
+            return -1;
+        return room.tilemaps.get(tilemap).getTile(column, row);
+    }
+
+    /**
+     * Changes a tile of the current room, only the chunk it is in gets rebuilt.
+     */
+    public static void setTile(int tilemap, int column, int row, int tile) {
+        Room room = getCurrentRoom();
+        if (room == null || tilemap < 0 || tilemap >= room.tilemaps.size())
+            return;
+        room.tilemaps.get(tilemap).setTile(column, row, tile);
+    }
+
     static Room getCurrentRoom() {
         return roomStack.peek();
     }
@@ -275,6 +467,13 @@ public class Room {
     }
 
     public static void change(String id, Animation animation) {
+        change(id, animation.player);
+    }
+
+    /**
+     * The player animates the entities "prevRoom" and "nextRoom", which show the two rooms.
+     */
+    public static void change(String id, AnimationPlayer animation) {
         changingRoomState = CHANGING;
         hasAnimation = true;
         Room.roomAnimation = animation;
@@ -288,6 +487,10 @@ public class Room {
     }
 
     public static void next(String id, Animation animation) {
+        next(id, animation.player);
+    }
+
+    public static void next(String id, AnimationPlayer animation) {
         changingRoomState = NEXT;
         hasAnimation = true;
         Room.roomAnimation = animation;
@@ -300,6 +503,10 @@ public class Room {
     }
 
     public static void prev(Animation animation) {
+        prev(animation.player);
+    }
+
+    public static void prev(AnimationPlayer animation) {
         changingRoomState = PREVIOUS;
         hasAnimation = true;
         Room.roomAnimation = animation;
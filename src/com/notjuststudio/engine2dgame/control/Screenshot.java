@@ -0,0 +1,201 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class Screenshot {
+
+    //a readback is mapped once its fence is signalled, or forced after this many frames
+    private static final int RING_SIZE = 3;
+
+    private static final Slot[] slots = new Slot[RING_SIZE];
+    private static final Queue<Request> requests = new LinkedList<>();
+    private static final Queue<Request> finished = new ConcurrentLinkedQueue<>();
+    private static final Set<String> reserved = new HashSet<>();
+
+    private static ExecutorService writer;
+    private static int next = 0;
+
+    static void request(File file, Game.ScreenshotCallback callback) {
+        //nothing is rendered headless, the request fails at once instead of waiting forever
+        if (Game.headless) {
+            if (callback != null)
+                callback.done(file.getPath(), false);
+            return;
+        }
+        reserved.add(file.getAbsolutePath());
+        requests.add(new Request(file, callback));
+    }
+
+    static boolean isReserved(File file) {
+        return reserved.contains(file.getAbsolutePath());
+    }
+
+    /**
+     * Called once per frame after rendering, before the buffers are swapped.
+     */
+    static void update() {
+        for (Slot slot : slots) {
+            if (slot != null && slot.request != null && (++slot.age >= RING_SIZE || slot.isReady()))
+                read(slot);
+        }
+
+        if (!requests.isEmpty()) {
+            Slot slot = slots[next];
+            if (slot == null)
+                slots[next] = slot = new Slot();
+            //the ring is full, this frame waits for the oldest readback
+            if (slot.request != null)
+                read(slot);
+            capture(slot, requests.poll());
+            next = (next + 1) % RING_SIZE;
+        }
+
+        Request request;
+        while ((request = finished.poll()) != null) {
+            reserved.remove(request.file.getAbsolutePath());
+            if (request.callback != null)
+                request.callback.done(request.file.getPath(), request.success);
+        }
+    }
+
+    private static void capture(Slot slot, Request request) {
+        int width = Display.getWidth();
+        int height = Display.getHeight();
+
+        Loader.bindDefaultFrameBuffer();
+        GL11.glReadBuffer(GL11.GL_BACK);
+        if (slot.pboID == 0)
+            slot.pboID = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, slot.pboID);
+        if (slot.width != width || slot.height != height) {
+            GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, (long) width * height * 4, GL15.GL_STREAM_READ);
+            slot.width = width;
+            slot.height = height;
+        }
+        //BGRA with the reversed packed type reads as one native ARGB int per pixel
+        GL11.glReadPixels(0, 0, width, height, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, 0);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        slot.fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        slot.request = request;
+        slot.age = 0;
+    }
+
+    private static void read(Slot slot) {
+        final Request request = slot.request;
+        final int width = slot.width;
+        final int height = slot.height;
+        final int[] pixels = new int[width * height];
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, slot.pboID);
+        ByteBuffer buffer = GL15.glMapBuffer(GL21.GL_PIXEL_PACK_BUFFER, GL15.GL_READ_ONLY, (long) width * height * 4, null);
+        if (buffer != null) {
+            buffer.order(ByteOrder.nativeOrder()).asIntBuffer().get(pixels);
+            GL15.glUnmapBuffer(GL21.GL_PIXEL_PACK_BUFFER);
+        }
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        GL32.glDeleteSync(slot.fence);
+        slot.fence = null;
+        slot.request = null;
+
+        if (buffer == null) {
+            finished.add(request);
+            return;
+        }
+        getWriter().execute(() -> {
+            request.success = write(request.file, pixels, width, height);
+            finished.add(request);
+        });
+    }
+
+    private static boolean write(File file, int[] pixels, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        //gl rows go bottom up
+        for (int y = 0; y < height; y++)
+            System.arraycopy(pixels, (height - 1 - y) * width, target, y * width, width);
+        try {
+            return ImageIO.write(image, "png", file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static ExecutorService getWriter() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Screenshot writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return writer;
+    }
+
+    /**
+     * Flushes the captures still in flight and waits for their files to be written.
+     */
+    static void clear() {
+        for (Slot slot : slots) {
+            if (slot == null)
+                continue;
+            if (slot.request != null)
+                read(slot);
+            GL15.glDeleteBuffers(slot.pboID);
+        }
+        Arrays.fill(slots, null);
+        requests.clear();
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+    }
+
+    private static class Slot {
+        int pboID = 0;
+        int width = 0;
+        int height = 0;
+        int age = 0;
+        GLSync fence;
+        Request request;
+
+        boolean isReady() {
+            int status = GL32.glClientWaitSync(fence, 0, 0);
+            return status == GL32.GL_ALREADY_SIGNALED || status == GL32.GL_CONDITION_SATISFIED;
+        }
+    }
+
+    private static class Request {
+        final File file;
+        final Game.ScreenshotCallback callback;
+        volatile boolean success = false;
+
+        Request(File file, Game.ScreenshotCallback callback) {
+            this.file = file;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.*;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class ScriptedInput implements InputManager.Source {
+
+    private static final int
+            KEY = 0,
+            BUTTON = 1,
+            MOVE = 2;
+
+    //input update index to the events applied on it
+    private final Map<Integer, List<int[]>> events = new HashMap<>();
+    private final Set<Integer> keys = new HashSet<>();
+    private final Set<Integer> buttons = new HashSet<>();
+    private int update = 0;
+    private int mouseX = 0;
+    private int mouseY = 0;
+
+    public ScriptedInput key(int update, int key, boolean down) {
+        return add(update, KEY, key, down ? 1 : 0);
+    }
+
+    /**
+     * Presses a key on one update and releases it on the next.
+     */
+    public ScriptedInput tap(int update, int key) {
+        return key(update, key, true).key(update + 1, key, false);
+    }
+
+    public ScriptedInput button(int update, int button, boolean down) {
+        return add(update, BUTTON, button, down ? 1 : 0);
+    }
+
+    public ScriptedInput mouse(int update, int x, int y) {
+        return add(update, MOVE, x, y);
+    }
+
+    private ScriptedInput add(int update, int type, int a, int b) {
+        events.computeIfAbsent(update, key -> new ArrayList<>()).add(new int[]{type, a, b});
+        return this;
+    }
+
+    public int getUpdate() {
+        return update;
+    }
+
+    @Override
+    public void poll(Set<Integer> keysDown, Set<Integer> keysUp, Set<Integer> buttonsDown, Set<Integer> buttonsUp) {
+        List<int[]> list = events.remove(update++);
+        if (list == null)
+            return;
+        for (int[] event : list) {
+            switch (event[0]) {
+                case KEY:
+                    if (event[2] == 1 && keys.add(event[1]))
+                        keysDown.add(event[1]);
+                    else if (event[2] == 0 && keys.remove(event[1]))
+                        keysUp.add(event[1]);
+                    break;
+                case BUTTON:
+                    if (event[2] == 1 && buttons.add(event[1]))
+                        buttonsDown.add(event[1]);
+                    else if (event[2] == 0 && buttons.remove(event[1]))
+                        buttonsUp.add(event[1]);
+                    break;
+                case MOVE:
+                    mouseX = event[1];
+                    mouseY = event[2];
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public boolean isKeyDown(int key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public boolean isButtonDown(int button) {
+        return buttons.contains(button);
+    }
+
+    @Override
+    public int getMouseX() {
+        return mouseX;
+    }
+
+    @Override
+    public int getMouseY() {
+        return mouseY;
+    }
+}
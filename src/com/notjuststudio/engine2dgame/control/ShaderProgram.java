@@ -1,16 +1,10 @@
 package com.notjuststudio.engine2dgame.control;
 
 import com.notjuststudio.engine2dgame.util.Parser;
-import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL32;
-import org.lwjgl.util.vector.Matrix3f;
-import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector4f;
 
-import java.awt.*;
-import java.nio.FloatBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,94 +14,88 @@ import java.util.Map;
 public class ShaderProgram {
 
     private static Map<Integer, Shader> shaderIDs = new HashMap<>();
-    static final String DEFAULT_PATH;
-    private static final ShaderProgram
+    static final String DEFAULT_PATH = "/com/notjuststudio/engine2dgame/res/";
+    //compiled in init, loading the class needs no gl context
+    private static ShaderProgram
             entityShader,
             spriteShader,
-            viewShader,
             roomShader,
             fillColorShader,
             backgroundShader,
             partShader,
-            upsideDownPartShader,
+            tileShader,
             textShader;
-    static {
-        DEFAULT_PATH = "/com/notjuststudio/engine2dgame/res/";
+    static void init() {
         entityShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "entityFragment.glsl"),
-                new String[]{
-                        "transformationMatrix"
+                new Uniform[]{
+                        new UniformMat3("transformationMatrix"),
+                        new UniformBool("instanced"),
+                        new UniformMat3("viewMatrix")
                 });
         spriteShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "spriteFragment.glsl"),
-                new String[]{
-                        "transformationMatrix",
-                        "alpha",
-                        "isFlipped"
-                });
-        viewShader = new ShaderProgram(
-                Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
-                Parser.parseFile(DEFAULT_PATH + "viewFragment.glsl"),
-                new String[]{
-                        "transformationMatrix",
-                        "point",
-                        "size"
+                new Uniform[]{
+                        new UniformMat3("transformationMatrix"),
+                        new UniformFloat("alpha"),
+                        new UniformBool("isFlipped")
                 });
         roomShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "roomFragment.glsl"),
-                new String[]{
-                        "transformationMatrix"
+                new Uniform[]{
+                        new UniformMat3("transformationMatrix")
                 });
         fillColorShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "fillColorVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "fillColorFragment.glsl"),
-                new String[]{
-                        "color"
+                new Uniform[]{
+                        new UniformVec4("color")
                 });
         backgroundShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "fillVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "backgroundFragment.glsl"),
-                new String[]{
-                        "scale"
+                new Uniform[]{
+                        new UniformVec2("offset"),
+                        new UniformVec2("scale")
                 });
         partShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "partFragment.glsl"),
-                new String[]{
-                        "transformationMatrix",
-                        "point",
-                        "size"
+                new Uniform[]{
+                        new UniformMat3("transformationMatrix"),
+                        new UniformVec2("point"),
+                        new UniformVec2("size")
                 });
-        upsideDownPartShader = new ShaderProgram(
-                Parser.parseFile(DEFAULT_PATH + "partVertex.glsl"),
-                Parser.parseFile(DEFAULT_PATH + "upsideDownFragment.glsl"),
-                new String[]{
-                        "transformationMatrix"
+        tileShader = new ShaderProgram(
+                Parser.parseFile(DEFAULT_PATH + "tileVertex.glsl"),
+                Parser.parseFile(DEFAULT_PATH + "tileFragment.glsl"),
+                new Uniform[]{
+                        new UniformMat3("viewMatrix")
                 });
         textShader = new ShaderProgram(
                 Parser.parseFile(DEFAULT_PATH + "textVertex.glsl"),
                 Parser.parseFile(DEFAULT_PATH + "textFragment.glsl"),
-                new String[]{
-                        "transformationMatrix",
-                        "color",
-                        "outline",
-                        "thickness",
-                        "edge"
+                new Uniform[]{
+                        new UniformMat3("transformationMatrix"),
+                        new UniformVec4("color"),
+                        new UniformVec4("outline"),
+                        new UniformFloat("thickness"),
+                        new UniformFloat("edge")
                 },
                 new HashMap<Integer, String>(){{
                     put(0, "vertexPos");
                     put(1, "vertexUV");
                 }});
-    };
+    }
 
     int ID;
-    private Map<String, Integer> uniformLocations = new HashMap<>();
+    private Map<String, Uniform> uniforms = new HashMap<>();
 //    private Map<Integer, String> attributeLocations = new HashMap<>();
 
-    ShaderProgram(String vertex, String fragment, String[] uniformKeys) {
+    ShaderProgram(String vertex, String fragment, Uniform[] uniforms) {
         Shader ids = new Shader();
         ids.vertexID = loadShader(GL20.GL_VERTEX_SHADER, vertex);
         ids.fragmentID = loadShader(GL20.GL_FRAGMENT_SHADER, fragment);
@@ -121,12 +109,12 @@ public class ShaderProgram {
         GL20.glDeleteShader(ids.fragmentID);
         GL20.glValidateProgram(ID);
 
-        getUniformLocations(uniformKeys);
+        getUniformLocations(uniforms);
         shaderIDs.put(ID, ids);
     }
 
-    ShaderProgram(String vertex, String fragment, String[] uniformKeys, Map<Integer, String> attributeKeys) {
-        this(vertex, fragment, uniformKeys);
+    ShaderProgram(String vertex, String fragment, Uniform[] uniforms, Map<Integer, String> attributeKeys) {
+        this(vertex, fragment, uniforms);
         for (Map.Entry<Integer, String> entry : attributeKeys.entrySet()) {
             GL20.glBindAttribLocation(this.ID, entry.getKey(), entry.getValue());
         }
@@ -164,71 +152,45 @@ public class ShaderProgram {
         return shaderID;
     }
 
-    void getUniformLocations(String[] uniformKeys) {
-        uniformLocations.clear();
-        for (String key : uniformKeys) {
-            uniformLocations.put(key, GL20.glGetUniformLocation(ID, key));
+    void getUniformLocations(Uniform[] uniforms) {
+        this.uniforms.clear();
+        for (Uniform uniform : uniforms) {
+            uniform.resolve(ID);
+            this.uniforms.put(uniform.name, uniform);
         }
     }
 
-    void loadUniform(String key, Object value) {
-        if (value instanceof Boolean) {
-            loadBool(uniformLocations.get(key), (Boolean) value);
-        } else if (value instanceof Float) {
-            loadFloat(uniformLocations.get(key), (Float) value);
-        } else if (value instanceof Color) {
-            Color color = (Color)value;
-            loadVector4f(uniformLocations.get(key), new Vector4f(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha()));
-        }else if (value instanceof Vector2f) {
-            loadVector2f(uniformLocations.get(key), (Vector2f) value);
-        } else if (value instanceof Vector4f) {
-            loadVector4f(uniformLocations.get(key), (Vector4f) value);
-        } else if (value instanceof Matrix3f) {
-            loadMatrix3f(uniformLocations.get(key), (Matrix3f) value);
-        }
-
-    }
-
-    private static FloatBuffer matrix3fBuffer = BufferUtils.createFloatBuffer(9);
-
-    private void loadMatrix3f(int location, Matrix3f value) {
-        value.store(matrix3fBuffer);
-        matrix3fBuffer.flip();
-        GL20.glUniformMatrix3(location, false, matrix3fBuffer);
-    }
-
-    private void loadVector2f(int location, Vector2f value) {
-        GL20.glUniform2f(location, value.x, value.y);
-    }
-
-    private void loadVector4f(int location, Vector4f value) {
-        GL20.glUniform4f(location, value.x, value.y, value.z, value.w);
+    /**
+     * Typed handle resolved when the program was created, hot paths should keep it instead of loading by name.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends Uniform> T getUniform(String key) {
+        return (T) uniforms.get(key);
     }
 
-    private void loadBool(int location, boolean value) {
-        GL20.glUniform1i(location, value ? 1 : 0);
+    void loadUniform(String key, Object value) {
+        uniforms.get(key).loadObject(value);
     }
 
-    private void loadInt(int location, int value) {
-        GL20.glUniform1i(location, value);
+    static int getIssuedUploads() {
+        return Uniform.getIssued();
     }
 
-    private void loadFloat(int location, float value) {
-        GL20.glUniform1f(location, value);
+    static int getSkippedUploads() {
+        return Uniform.getSkipped();
     }
 
-
     private static class Shader {
         private int vertexID;
         private int fragmentID;
     }
 
     void useThis() {
-        GL20.glUseProgram(ID);
+        GLState.useProgram(ID);
     }
 
     static void useNone() {
-        GL20.glUseProgram(0);
+        GLState.useProgram(0);
     }
 
     static ShaderProgram getEntityShader() {
@@ -239,10 +201,6 @@ public class ShaderProgram {
         return spriteShader;
     }
 
-    static ShaderProgram getViewShader() {
-        return viewShader;
-    }
-
     static ShaderProgram getRoomShader() {
         return roomShader;
     }
@@ -259,8 +217,8 @@ public class ShaderProgram {
         return partShader;
     }
 
-    static ShaderProgram getUpsideDownPartShader() {
-        return upsideDownPartShader;
+    static ShaderProgram getTileShader() {
+        return tileShader;
     }
 
     static ShaderProgram getTextShader() {
@@ -0,0 +1,86 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class Simulation {
+
+    //steps per second, 0 steps once per rendered frame with the frame delta
+    static float tickRate = 0;
+    //steps a single frame may run, the rest of a long frame is dropped
+    static int maxSteps = 5;
+
+    private static float accumulator = 0;
+    private static float alpha = 1;
+    private static float stepDelta = 0;
+    private static long droppedSteps = 0;
+    //the room's steppers copied, a step may create or destroy entities
+    private static final List<Entity> stepping = new ArrayList<>();
+
+    static boolean isFixed() {
+        return tickRate > 0;
+    }
+
+    /**
+     * Adds the frame time and returns how many steps to run before rendering.
+     */
+    static int advance(float delta) {
+        if (!isFixed()) {
+            stepDelta = delta;
+            alpha = 1;
+            return 1;
+        }
+        stepDelta = 1 / tickRate;
+        accumulator += delta;
+        int steps = (int) (accumulator / stepDelta);
+        if (steps > maxSteps) {
+            droppedSteps += steps - maxSteps;
+            steps = maxSteps;
+            accumulator = accumulator % stepDelta + steps * stepDelta;
+        }
+        accumulator -= steps * stepDelta;
+        //how far rendering is between the last two steps
+        alpha = accumulator / stepDelta;
+        return steps;
+    }
+
+    static void step(Room room) {
+        List<Entity> entities = room.entities;
+        //all of them first, a step may move other entities
+        if (isFixed())
+            for (int i = 0; i < entities.size(); i++)
+                entities.get(i).savePrevious();
+        stepping.addAll(room.steppers);
+        try {
+            for (int i = 0; i < stepping.size(); i++) {
+                Entity entity = stepping.get(i);
+                //destroyed by an earlier step
+                if (entity.room == room)
+                    entity.step();
+            }
+        } finally {
+            stepping.clear();
+        }
+        Animator.update(stepDelta);
+    }
+
+    static float interpolate(float previous, float current) {
+        return previous + (current - previous) * alpha;
+    }
+
+    static void reset() {
+        accumulator = 0;
+        alpha = 1;
+    }
+
+    static float getStepDelta() {
+        return stepDelta;
+    }
+
+    static long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
@@ -0,0 +1,107 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class SpatialGrid {
+
+    static final int CELL_SIZE = 256;
+
+    private final int columns;
+    private final int rows;
+    private final List<Entity>[] cells;
+
+    private int stamp = 0;
+
+    @SuppressWarnings("unchecked")
+    SpatialGrid(int width, int height) {
+        columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+        rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+        cells = new List[columns * rows];
+    }
+
+    void update(Entity entity) {
+        if (entity.sprite == null) {
+            remove(entity);
+            return;
+        }
+        entity.updateBounds();
+        int minColumn = column(entity.minX);
+        int maxColumn = column(entity.maxX);
+        int minRow = row(entity.minY);
+        int maxRow = row(entity.maxY);
+        if (entity.inGrid && minColumn == entity.minColumn && maxColumn == entity.maxColumn && minRow == entity.minRow && maxRow == entity.maxRow)
+            return;
+
+        remove(entity);
+        entity.minColumn = minColumn;
+        entity.maxColumn = maxColumn;
+        entity.minRow = minRow;
+        entity.maxRow = maxRow;
+        for (int y = minRow; y <= maxRow; y++) {
+            for (int x = minColumn; x <= maxColumn; x++) {
+                List<Entity> cell = cells[y * columns + x];
+                if (cell == null)
+                    cells[y * columns + x] = cell = new ArrayList<>();
+                cell.add(entity);
+            }
+        }
+        entity.inGrid = true;
+    }
+
+    void remove(Entity entity) {
+        if (!entity.inGrid)
+            return;
+        for (int y = entity.minRow; y <= entity.maxRow; y++) {
+            for (int x = entity.minColumn; x <= entity.maxColumn; x++) {
+                cells[y * columns + x].remove(entity);
+            }
+        }
+        entity.inGrid = false;
+    }
+
+    void clear() {
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = null;
+    }
+
+    /**
+     * Starts a new query, entities found by the following {@link #mark} calls get the returned stamp.
+     */
+    int nextStamp() {
+        return ++stamp;
+    }
+
+    void mark(float x, float y, float width, float height) {
+        float maxX = x + width;
+        float maxY = y + height;
+        int maxColumn = column(maxX);
+        int maxRow = row(maxY);
+        for (int row = row(y); row <= maxRow; row++) {
+            for (int column = column(x); column <= maxColumn; column++) {
+                List<Entity> cell = cells[row * columns + column];
+                if (cell == null)
+                    continue;
+                for (int i = 0; i < cell.size(); i++) {
+                    Entity entity = cell.get(i);
+                    if (entity.visibleStamp != stamp &&
+                            entity.maxX >= x && entity.minX <= maxX &&
+                            entity.maxY >= y && entity.minY <= maxY)
+                        entity.visibleStamp = stamp;
+                }
+            }
+        }
+    }
+
+    //outside entities are kept in the border cells, queries are clamped the same way
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / CELL_SIZE)));
+    }
+}
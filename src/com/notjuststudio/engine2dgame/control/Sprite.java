@@ -1,7 +1,7 @@
 package com.notjuststudio.engine2dgame.control;
 
 import com.notjuststudio.engine2dgame.util.Container;
-import com.notjuststudio.engine2dgame.util.ImageLoader;
+import com.notjuststudio.engine2dgame.util.ImageData;
 import com.notjuststudio.engine2dgame.util.Parser;
 import com.notjuststudio.fpnt.FPNTDecoder;
 import org.lwjgl.opengl.GL14;
@@ -11,6 +11,7 @@ import java.awt.image.BufferedImage;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Created by Georgy on 03.04.2017.
@@ -26,49 +27,92 @@ public class Sprite implements Draw.Drawable{
 
     boolean isAccurateCollisionCheck = false;
 
-    private BufferedImage image = null;
+    //cpu copy of the pixels, kept up front for accurate collision and read back on demand otherwise
+    private int[] data = null;
     int width = 0;
     int height = 0;
 
 
-    int textureID;
+    TextureAtlas.Region region;
 
     Sprite(BufferedImage image) {
-        textureID = Loader.loadTexture(image, GL14.GL_MIRRORED_REPEAT);
-        this.image = image;
+        width = image.getWidth();
+        height = image.getHeight();
+        region = new TextureAtlas.Region(TextureManager.create(Loader.loadTexture(image, GL14.GL_MIRRORED_REPEAT), width, height));
     }
 
+    //the texture stays owned by the caller
     Sprite(int textureID) {
-        this.textureID = textureID;
-        image = Loader.loadImageFromTexture(textureID);
+        region = new TextureAtlas.Region(TextureManager.wrap(textureID));
+        int[] size = Loader.getTextureSize(textureID);
+        width = size[0];
+        height = size[1];
     }
 
     Sprite(int textureID, int width, int height) {
-        this.textureID = textureID;
+        region = new TextureAtlas.Region(TextureManager.wrap(textureID));
         this.width = width;
         this.height = height;
     }
 
-    private Sprite(Container tmp) {
-        image = tmp.getBufferedImage(Container.SOURCE);
-        if (image == null)
-            textureID = 0;
-        else
-            textureID = Loader.loadTexture(image, GL14.GL_MIRRORED_REPEAT);
+    //decoded pixels waiting for the gl thread
+    private ImageData image;
+    private Supplier<ImageData> source;
 
+    //decodes only, safe to call off the gl thread
+    private Sprite(Container tmp, Supplier<ImageData> source) {
+        this.source = source;
         isAccurateCollisionCheck = tmp.getBoolean(Container.COLLISION, false);
 
+        image = tmp.getImageData(Container.SOURCE);
+        if (image != null) {
+            width = image.width;
+            height = image.height;
+            if (isAccurateCollisionCheck)
+                data = image.toArgb();
+        }
+
         xOffset = tmp.getInt(Container.X_OFFSET, 0);
         yOffset = tmp.getInt(Container.Y_OFFSET, 0);
     }
 
+    private void upload() {
+        if (Game.headless) {
+            //no texture to read collision data back from, so it is kept for every sprite
+            region = new TextureAtlas.Region(TextureManager.NONE);
+            if (image != null) {
+                if (data == null)
+                    data = image.toArgb();
+                image.release();
+            }
+            image = null;
+            source = null;
+            return;
+        }
+        region = image == null ? new TextureAtlas.Region(TextureManager.NONE) : TextureAtlas.add(image, source);
+        image = null;
+        source = null;
+    }
+
     static void loadSprite(String id, File filePath) {
         final Container tmp = FPNTDecoder.read(filePath, new Container());
-        spriteMap.put(id, new Sprite(tmp));
+        loadSprite(id, new Sprite(tmp, () -> FPNTDecoder.read(filePath, new Container()).getImageData(Container.SOURCE)));
     }
 
     static void loadSprite(String id, Container container) {
-        spriteMap.put(id, new Sprite(container));
+        loadSprite(id, new Sprite(container, container.getImageSource(Container.SOURCE)));
+    }
+
+    /**
+     * The source decodes the image again whenever its texture has to be reloaded.
+     */
+    static Sprite decodeSprite(Container container, Supplier<ImageData> source) {
+        return new Sprite(container, source);
+    }
+
+    static void loadSprite(String id, Sprite decoded) {
+        decoded.upload();
+        spriteMap.put(id, decoded);
     }
 
     public static Sprite getSprite(String id) {
@@ -85,30 +129,27 @@ public class Sprite implements Draw.Drawable{
         float yScale = parameters.getOrDefault("yScale", 1f);
         float alpha = parameters.getOrDefault("alpha", 1f);
 
-        MasterRender.setShader(ShaderProgram.getSpriteShader());
-        MasterRender.currentShader.loadUniform("alpha", alpha);
-        MasterRender.currentShader.loadUniform("isFlipped", isFlipped);
-        MasterRender.renderGUI(this.textureID,
-                MasterRender.createTransformationMatrix(
-                        x, y,
-                        xScale, yScale,
-                        0,
-                        this.getWidth(), this.getHeight(),
-                        this.xOffset, this.yOffset,
-                        0, 0,
-                        Room.getCurrentRoom().width, Room.getCurrentRoom().height)
-        );
+        draw(x, y, xScale, yScale, alpha);
+    }
+
+    void draw(float x, float y, float xScale, float yScale, float alpha) {
+        if (!Draw.isDraw) return;
+        SpriteBatch.add(this, x, y, xScale, yScale, 0, alpha, isFlipped);
     }
 
     public int getWidth() {
-        return image == null ? width : image.getWidth();
+        return width;
     }
 
     public int getHeight() {
-        return image == null ? height : image.getHeight();
+        return height;
     }
 
     public int getData(int x, int y) {
-        return image == null ? 0 : image.getRGB(x,y);
+        if (region.texture == TextureManager.NONE && data == null)
+            return 0;
+        if (data == null)
+            data = TextureAtlas.readPixels(region, width, height);
+        return data[y * width + x];
     }
 }
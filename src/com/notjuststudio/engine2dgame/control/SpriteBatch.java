@@ -0,0 +1,79 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class SpriteBatch {
+
+    static final int
+            ATTRIBUTE_COUNT = 4,
+            MAX_INSTANCES = 2048;
+
+    private static final int INSTANCE_SIZE = ATTRIBUTE_COUNT * 4;
+
+    private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(INSTANCE_SIZE * MAX_INSTANCES);
+
+    private static final UniformBool instanced = ShaderProgram.getEntityShader().getUniform("instanced");
+    private static final UniformMat3 viewMatrix = ShaderProgram.getEntityShader().getUniform("viewMatrix");
+
+    private static TextureManager.Texture texture = TextureManager.NONE;
+    private static int count = 0;
+
+    static void add(Sprite sprite, float x, float y, float xScale, float yScale, float angle, float alpha, boolean isFlipped) {
+        final TextureAtlas.Region region = sprite.region;
+        if (count != 0 && (texture != region.texture || count == MAX_INSTANCES))
+            flush();
+        texture = region.texture;
+
+        //transform
+        buffer.put(x).put(y).put(angle).put(alpha);
+        //size
+        buffer.put(sprite.getWidth()).put(sprite.getHeight()).put(sprite.xOffset).put(sprite.yOffset);
+        //uv
+        buffer.put(region.u).put(region.v).put(region.uWidth).put(region.vHeight);
+        //scale
+        buffer.put(xScale).put(yScale).put(isFlipped ? 1 : 0).put(0);
+
+        count++;
+    }
+
+    static void flush() {
+        if (count == 0)
+            return;
+
+        MasterRender.setShader(ShaderProgram.getEntityShader());
+        instanced.load(true);
+        viewMatrix.load(MasterRender.createCameraMatrix());
+        GLState.bindTexture(texture.use());
+        Loader.bindVao(Loader.getVaoID());
+
+        buffer.flip();
+        if (Loader.isInstancingSupported()) {
+            Loader.updateInstanceData(buffer);
+            GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, 4, count);
+        } else {
+            //without divisors the attributes are not arrays, so feed them as constants per draw
+            for (int i = 0; i < count; i++) {
+                int offset = i * INSTANCE_SIZE;
+                for (int j = 0; j < ATTRIBUTE_COUNT; j++) {
+                    GL20.glVertexAttrib4f(1 + j,
+                            buffer.get(offset + j * 4),
+                            buffer.get(offset + j * 4 + 1),
+                            buffer.get(offset + j * 4 + 2),
+                            buffer.get(offset + j * 4 + 3));
+                }
+                GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
+            }
+        }
+
+        buffer.clear();
+        count = 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL11;
+
+import java.util.*;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class StaticLayers {
+
+    static final int TILE_SIZE = 512;
+
+    //entities whose depth floors to the same band share a layer
+    static float bandDepth = 1;
+    //frames an entity has to stay unchanged before it is cached without the static flag
+    static int settleFrames = 30;
+    //smaller bands are cheaper to draw directly
+    static int minEntities = 8;
+    //tiles of all rooms together, a layer that needs more is drawn directly
+    static int maxTiles = 64;
+
+    private static int tileCount = 0;
+
+    private final Room room;
+    private final int columns;
+    private final int rows;
+    private final Map<Long, Layer> layers = new HashMap<>();
+
+    long frame = 0;
+
+    StaticLayers(Room room) {
+        this.room = room;
+        columns = Math.max(1, (room.width + TILE_SIZE - 1) / TILE_SIZE);
+        rows = Math.max(1, (room.height + TILE_SIZE - 1) / TILE_SIZE);
+    }
+
+    /**
+     * Sorts the drawable entities into layers, called once per frame before any view is rendered.
+     */
+    void update() {
+        frame++;
+        for (Layer layer : layers.values()) {
+            layer.entities.clear();
+            layer.ready = true;
+        }
+
+        List<Entity> order = room.renderOrder;
+        int i = 0;
+        while (i < order.size()) {
+            final long band = band(order.get(i).depth);
+            final int start = i;
+            boolean cacheable = true;
+            int count = 0;
+            for (; i < order.size() && band(order.get(i).depth) == band; i++) {
+                Entity entity = order.get(i);
+                entity.layer = null;
+                if (!entity.isVisible() || entity.sprite == null)
+                    continue;
+                count++;
+                cacheable &= isCacheable(entity);
+            }
+            //one live entity is enough, it could be between two cached ones
+            if (!cacheable || count < minEntities)
+                continue;
+            Layer layer = layers.get(band);
+            if (layer == null)
+                layers.put(band, layer = new Layer());
+            layer.usedFrame = frame;
+            for (int j = start; j < i; j++) {
+                Entity entity = order.get(j);
+                if (entity.isVisible() && entity.sprite != null) {
+                    entity.layer = layer;
+                    layer.entities.add(entity);
+                }
+            }
+        }
+
+        //a band that stays live keeps its tiles for a while, it is probably settling
+        Iterator<Layer> iterator = layers.values().iterator();
+        while (iterator.hasNext()) {
+            Layer layer = iterator.next();
+            if (frame - layer.usedFrame > 4L * settleFrames) {
+                layer.release();
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isCacheable(Entity entity) {
+        if (entity.hasDrawHook || (!entity.isStatic && frame - entity.changedFrame < settleFrames))
+            return false;
+        //tiles cover the room only
+        return entity.inGrid && entity.minX >= 0 && entity.minY >= 0 && entity.maxX <= room.width && entity.maxY <= room.height;
+    }
+
+    /**
+     * Builds the invalid tiles under a camera, called before the room frame buffer is bound.
+     */
+    void prepare(float x, float y, int width, int height) {
+        for (Layer layer : layers.values()) {
+            if (layer.entities.isEmpty() || !layer.ready)
+                continue;
+            int maxColumn = column(x + width);
+            int maxRow = row(y + height);
+            for (int row = row(y); row <= maxRow && layer.ready; row++) {
+                for (int column = column(x); column <= maxColumn; column++) {
+                    Tile tile = layer.tiles[row * columns + column];
+                    if (tile == null) {
+                        if (tileCount >= maxTiles) {
+                            layer.ready = false;
+                            break;
+                        }
+                        layer.tiles[row * columns + column] = tile = new Tile(column, row);
+                    }
+                    if (!tile.valid)
+                        build(layer, tile);
+                }
+            }
+        }
+    }
+
+    private void build(Layer layer, Tile tile) {
+        if (tile.target == null) {
+            tile.target = RenderTargetPool.acquire(TILE_SIZE, TILE_SIZE, GL11.GL_RGBA8, "staticLayer");
+            tile.sprite = new Sprite(tile.target.textureID, TILE_SIZE, TILE_SIZE);
+            tileCount++;
+        }
+        float x = tile.column * TILE_SIZE;
+        float y = tile.row * TILE_SIZE;
+        MasterRender.bindFrameBuffer(tile.target.framebufferID, TILE_SIZE, TILE_SIZE);
+        MasterRender.clearScreen(0f, 0f, 0f, 0f);
+        MasterRender.setCamera(x, y, TILE_SIZE, TILE_SIZE);
+        //alpha is accumulated premultiplied, so the tile composites like the sprites it replaces
+        GLState.blendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        int stamp = room.grid.nextStamp();
+        room.grid.mark(x, y, TILE_SIZE, TILE_SIZE);
+        for (int i = 0; i < layer.entities.size(); i++) {
+            Entity entity = layer.entities.get(i);
+            if (entity.visibleStamp == stamp)
+                SpriteBatch.add(entity.sprite, entity.getX(), entity.getY(), 1, 1, entity.getSprite_angle(), 1, false);
+        }
+        SpriteBatch.flush();
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        tile.valid = true;
+    }
+
+    /**
+     * Composites the tiles of a layer under the current camera.
+     */
+    void draw(Layer layer, float x, float y, int width, int height) {
+        SpriteBatch.flush();
+        GLState.blendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        int maxColumn = column(x + width);
+        int maxRow = row(y + height);
+        for (int row = row(y); row <= maxRow; row++) {
+            for (int column = column(x); column <= maxColumn; column++) {
+                Tile tile = layer.tiles[row * columns + column];
+                //frame buffer rows go bottom up
+                SpriteBatch.add(tile.sprite, column * TILE_SIZE, row * TILE_SIZE, 1, 1, 0, 1, true);
+            }
+        }
+        SpriteBatch.flush();
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Marks the tiles under the current bounds of the entity for a rebuild.
+     */
+    void invalidate(Entity entity) {
+        entity.changedFrame = frame;
+        if (!entity.inGrid || layers.isEmpty())
+            return;
+        Layer layer = layers.get(band(entity.depth));
+        if (layer == null)
+            return;
+        int maxColumn = column(entity.maxX);
+        int maxRow = row(entity.maxY);
+        for (int row = row(entity.minY); row <= maxRow; row++) {
+            for (int column = column(entity.minX); column <= maxColumn; column++) {
+                Tile tile = layer.tiles[row * columns + column];
+                if (tile != null)
+                    tile.valid = false;
+            }
+        }
+    }
+
+    void clear() {
+        for (Layer layer : layers.values())
+            layer.release();
+        layers.clear();
+    }
+
+    static int getTileCount() {
+        return tileCount;
+    }
+
+    private static long band(float depth) {
+        return (long) Math.floor(depth / bandDepth);
+    }
+
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) Math.floor(x / TILE_SIZE)));
+    }
+
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / TILE_SIZE)));
+    }
+
+    class Layer {
+        private final Tile[] tiles = new Tile[columns * rows];
+        private final List<Entity> entities = new ArrayList<>();
+        private long usedFrame = 0;
+        //false when the tile budget ran out, the entities are drawn directly this frame
+        boolean ready = true;
+
+        private void release() {
+            for (int i = 0; i < tiles.length; i++) {
+                if (tiles[i] != null && tiles[i].target != null) {
+                    RenderTargetPool.release(tiles[i].target);
+                    tileCount--;
+                }
+                tiles[i] = null;
+            }
+        }
+    }
+
+    private static class Tile {
+        private final int column;
+        private final int row;
+        private RenderTargetPool.Target target;
+        private Sprite sprite;
+        private boolean valid = false;
+
+        private Tile(int column, int row) {
+            this.column = column;
+            this.row = row;
+        }
+    }
+}
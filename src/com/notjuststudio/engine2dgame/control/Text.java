@@ -1,15 +1,16 @@
 package com.notjuststudio.engine2dgame.control;
 
-import org.lwjgl.opengl.GL11;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL30;
 import org.lwjgl.util.vector.Vector4f;
 
 import java.awt.*;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Created by George on 09.05.2017.
@@ -40,11 +41,13 @@ public class Text implements Draw.Drawable{
     TextFont font;
 
     int vaoID = 0;
-    int indID = 0;
-    int posID = 0;
-    int uvID = 0;
+    int vboID = 0;
+    int capacity = 0;
     int count = 0;
 
+    //shared layout scratch, grown to the longest text seen
+    private static FloatBuffer vertices = BufferUtils.createFloatBuffer(64 * 16);
+
     public static final int
             LEFT = 0,
             BOTTOM = 0,
@@ -161,11 +164,10 @@ public class Text implements Draw.Drawable{
 
     void update() {
 
-        clear();
-
         this.count = this.text.replace(" ", "").replace("\n","").length();
-        float[] positions = new float[this.count * 8]; //2*4
-        float[] uvs = new float[this.count * 8]; //2*4
+        if (vertices.capacity() < this.count * 16) //4 * (x, y, u, v)
+            vertices = BufferUtils.createFloatBuffer(Math.max(this.count, vertices.capacity() / 16 * 2) * 16);
+        vertices.clear();
 
         setWidth();
         setHeight();
@@ -173,7 +175,6 @@ public class Text implements Draw.Drawable{
         int xCursor = 0;
         int yCursor = this.height - (int) Math.floor((float) size  * 9 / 8);
 
-        int counter = 0;
         String[] lines = format();
         for (String line : lines) {
             switch (this.alignH) {
@@ -191,38 +192,38 @@ public class Text implements Draw.Drawable{
                 TextFont.Char ch = font.getCharacter(symbol);
 
                 if (symbol != ' ') {
-
-                    positions[counter * 8] = (xCursor + (- ch.xOffset) * scale) / this.width * 2 - 1;
-                    positions[counter * 8 + 1] = (yCursor + (ch.height - ch.yOffset) * scale) / this.height * 2 - 1;
-                    positions[counter * 8 + 2] = (xCursor + (ch.width - ch.xOffset) * scale) / this.width * 2 - 1;
-                    positions[counter * 8 + 3] = (yCursor + (ch.height - ch.yOffset) * scale) / this.height * 2 - 1;
-                    positions[counter * 8 + 4] = (xCursor + (- ch.xOffset) * scale) / this.width * 2 - 1;
-                    positions[counter * 8 + 5] = (yCursor + ( - ch.yOffset) * scale) / this.height * 2 - 1;
-                    positions[counter * 8 + 6] = (xCursor + (ch.width - ch.xOffset) * scale) / this.width * 2 - 1;
-                    positions[counter * 8 + 7] = (yCursor + ( - ch.yOffset) * scale) / this.height * 2 - 1;
-
-                    uvs[counter * 8] = (ch.x) / (float)font.source.getWidth();
-                    uvs[counter * 8 + 1] = (ch.y) / (float)font.source.getHeight();
-                    uvs[counter * 8 + 2] = (ch.x + ch.width) / (float)font.source.getWidth();
-                    uvs[counter * 8 + 3] = (ch.y) / (float)font.source.getHeight();
-                    uvs[counter * 8 + 4] = (ch.x) / (float)font.source.getWidth();
-                    uvs[counter * 8 + 5] = (ch.y + ch.height) / (float)font.source.getHeight();
-                    uvs[counter * 8 + 6] = (ch.x + ch.width) / (float)font.source.getWidth();
-                    uvs[counter * 8 + 7] = (ch.y + ch.height) / (float)font.source.getHeight();
-
-                    counter++;
+                    float left = (xCursor + (- ch.xOffset) * scale) / this.width * 2 - 1;
+                    float right = (xCursor + (ch.width - ch.xOffset) * scale) / this.width * 2 - 1;
+                    float top = (yCursor + (ch.height - ch.yOffset) * scale) / this.height * 2 - 1;
+                    float bottom = (yCursor + ( - ch.yOffset) * scale) / this.height * 2 - 1;
+                    float u = font.getU(ch.x);
+                    float uRight = font.getU(ch.x + ch.width);
+                    float v = font.getV(ch.y);
+                    float vBottom = font.getV(ch.y + ch.height);
+
+                    vertices.put(left).put(top).put(u).put(v);
+                    vertices.put(right).put(top).put(uRight).put(v);
+                    vertices.put(left).put(bottom).put(u).put(vBottom);
+                    vertices.put(right).put(bottom).put(uRight).put(vBottom);
                 }
 
-                xCursor += Math.floor(font.getCharacter(symbol).step * scale) + letterSpacing;
+                xCursor += Math.floor(ch.step * scale) + letterSpacing;
             }
             yCursor -= this.size * 9 / 8;
         }
-
-        int[] result = Loader.createTextVAO(positions, uvs);
-        this.vaoID = result[0];
-        this.indID = result[1];
-        this.posID = result[2];
-        this.uvID = result[3];
+        vertices.flip();
+
+        if (this.count > this.capacity) {
+            int capacity = Math.max(this.count, this.capacity * 2);
+            if (this.vaoID == 0) {
+                int[] result = Loader.createQuadVAO(capacity);
+                this.vaoID = result[0];
+                this.vboID = result[1];
+            }
+            this.capacity = capacity;
+        }
+        if (this.count > 0)
+            Loader.updateQuadData(this.vboID, this.capacity, vertices);
 
         needToUpdate = false;
     }
@@ -234,6 +235,11 @@ public class Text implements Draw.Drawable{
         float y = parameters.getOrDefault("y", 0f);
         this.setSize((int)Math.floor(parameters.getOrDefault("size", (float)this.size)));
 
+        draw(x, y);
+    }
+
+    void draw(float x, float y) {
+        if (!Draw.isDraw) return;
         if (this.needToUpdate) this.update();
 //        MasterRender.setShader(ShaderProgram.getTextShader());
 //        MasterRender.currentShader.loadUniform("color",new Vector4f(this.color.getRed(), this.color.getGreen(), this.color.getBlue(), this.color.getAlpha()));
@@ -267,8 +273,8 @@ public class Text implements Draw.Drawable{
                 0,
                 this.width, this.height,
                 xOffset, yOffset,
-                0,0,
-                Room.getCurrentRoom().width, Room.getCurrentRoom().height
+                MasterRender.cameraX, MasterRender.cameraY,
+                MasterRender.cameraWidth, MasterRender.cameraHeight
         ));
     }
 
@@ -278,12 +284,12 @@ public class Text implements Draw.Drawable{
     }
 
     void clear() {
-        GL30.glDeleteVertexArrays(vaoID);
-        GL15.glDeleteBuffers(posID);
-        GL15.glDeleteBuffers(uvID);
+        GLState.deleteVao(vaoID);
+        GL15.glDeleteBuffers(vboID);
         vaoID = 0;
-        posID = 0;
-        uvID = 0;
+        vboID = 0;
+        capacity = 0;
+        needToUpdate = true;
     }
 
     static void clearUp() {
@@ -306,6 +312,7 @@ public class Text implements Draw.Drawable{
     }
 
     public Text setAlignV(int alignV) {
+        if (alignV == this.alignV) return this;
         this.alignV = alignV;
         this.needToUpdate = true;
         return this;
@@ -316,6 +323,7 @@ public class Text implements Draw.Drawable{
     }
 
     public Text setAlignH(int alignH) {
+        if (alignH == this.alignH) return this;
         this.alignH = alignH;
         this.needToUpdate = true;
         return this;
@@ -326,6 +334,7 @@ public class Text implements Draw.Drawable{
     }
 
     public Text setLetterSpacing(int letterSpacing) {
+        if (letterSpacing == this.letterSpacing) return this;
         this.letterSpacing = letterSpacing;
         this.needToUpdate = true;
         return this;
@@ -336,6 +345,7 @@ public class Text implements Draw.Drawable{
     }
 
     public Text setText(String text) {
+        if (Objects.equals(text, this.text)) return this;
         this.text = text;
         this.needToUpdate = true;
         return this;
@@ -352,6 +362,7 @@ public class Text implements Draw.Drawable{
     }
 
     public Text setSize(int size) {
+        if (size == this.size) return this;
         this.size = size;
         this.scale = (float)this.size/this.font.size;
         this.needToUpdate = true;
@@ -1,12 +1,11 @@
 package com.notjuststudio.engine2dgame.control;
 
 import com.notjuststudio.engine2dgame.util.Container;
+import com.notjuststudio.engine2dgame.util.ImageData;
 import com.notjuststudio.engine2dgame.util.ImageLoader;
 import com.notjuststudio.engine2dgame.util.Parser;
 import com.notjuststudio.fpnt.FPNTDecoder;
-import org.lwjgl.opengl.GL14;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
 
@@ -19,14 +18,12 @@ class TextFont {
 
     private Map<Character, Char> charMap = new HashMap<>();
 
-    BufferedImage source;
-    int textureID;
+    TextureAtlas.Region region;
 
     int size;
 
-    TextFont(BufferedImage source, String metaSource) {
-        this.source = source;
-        textureID = Loader.loadTexture(source, GL14.GL_MIRRORED_REPEAT);
+    TextFont(ImageData source, String metaSource) {
+        region = upload(source);
 
         final Scanner reader = new Scanner(metaSource);
 
@@ -65,8 +62,7 @@ class TextFont {
     }
 
     TextFont(String sourcePath, String metaPath) {
-        source = ImageLoader.loadImage(new File(sourcePath));
-        textureID = Loader.loadTexture(source, GL14.GL_MIRRORED_REPEAT);
+        region = upload(ImageLoader.loadImageData(new File(sourcePath)));
 
         BufferedReader reader = null;
         try {
@@ -117,14 +113,14 @@ class TextFont {
 
     static void loadFont(String id, File filePath) {
         final Container tmp = FPNTDecoder.read(filePath, new Container());
-        loadFont(id, tmp.getBufferedImage(Container.SOURCE), tmp.getString(Container.META));
+        loadFont(id, tmp.getImageData(Container.SOURCE), tmp.getString(Container.META));
     }
 
     static void loadFont(String id, Container tmp) {
-        loadFont(id, tmp.getBufferedImage(Container.SOURCE), tmp.getString(Container.META));
+        loadFont(id, tmp.getImageData(Container.SOURCE), tmp.getString(Container.META));
     }
 
-    static void loadFont(String id, BufferedImage source, String metaSource) {
+    static void loadFont(String id, ImageData source, String metaSource) {
         fontMap.put(id, new TextFont(source, metaSource));
     }
 
@@ -132,6 +128,14 @@ class TextFont {
         fontMap.put(id, new TextFont(sourcePath, metaPath));
     }
 
+    //headless fonts keep only their metrics, text is measured but never drawn
+    private static TextureAtlas.Region upload(ImageData image) {
+        if (!Game.headless)
+            return TextureAtlas.add(image, null);
+        image.release();
+        return new TextureAtlas.Region(TextureManager.NONE);
+    }
+
     private int parse(String field) {
         return Integer.parseInt(field.split("=")[1]);
     }
@@ -173,6 +177,14 @@ class TextFont {
         return "None";
     }
 
+    float getU(int x) {
+        return region.u + x / (float) region.width * region.uWidth;
+    }
+
+    float getV(int y) {
+        return region.v + y / (float) region.height * region.vHeight;
+    }
+
     Char getCharacter(char character) {
         Char result;
         if ((result = charMap.get(character)) == null)
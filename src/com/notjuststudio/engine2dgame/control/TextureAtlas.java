@@ -0,0 +1,305 @@
+package com.notjuststudio.engine2dgame.control;
+
+import com.notjuststudio.engine2dgame.util.AtlasPacker;
+import com.notjuststudio.engine2dgame.util.BufferPool;
+import com.notjuststudio.engine2dgame.util.ImageData;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class TextureAtlas {
+
+    static final int PADDING = 1;
+
+    static int pageSize = 2048;
+
+    private static final Map<ImageKey, Region> regionMap = new HashMap<>();
+    private static final List<Region> pending = new ArrayList<>();
+    private static final List<Page> pages = new ArrayList<>();
+
+    private static int imageCount = 0;
+    private static int duplicateCount = 0;
+    private static long imageArea = 0;
+
+    /**
+     * Takes ownership of the image data, its buffer goes back to the pool once it is uploaded.
+     * The source decodes the image again after its page was evicted, pages holding a region without one stay resident.
+     */
+    static Region add(ImageData image, Supplier<ImageData> source) {
+        imageCount++;
+        ImageKey key = new ImageKey(image);
+        Region result = regionMap.get(key);
+        if (result != null) {
+            duplicateCount++;
+            image.release();
+            if (source == null)
+                result.source = null;
+            return result;
+        }
+        result = new Region(null);
+        result.width = image.width;
+        result.height = image.height;
+        result.image = image;
+        result.source = source;
+        result.key = key;
+        regionMap.put(key, result);
+        pending.add(result);
+        return result;
+    }
+
+    //state of a build that is spread over several frames
+    private static int buildSize = 0;
+    private static int firstPage = 0;
+    private static int placed = 0;
+    private static int uploadedPages = 0;
+    private static final List<ByteBuffer> buffers = new ArrayList<>();
+
+    /**
+     * Packs and uploads the pending images until the budget in nanoseconds is spent, returns true once done.
+     * The regions get their textures only when their page is uploaded.
+     */
+    static boolean build(long budget) {
+        if (pending.isEmpty())
+            return true;
+        //elapsed time is compared, start + budget overflows for an unlimited budget
+        final long start = System.nanoTime();
+        if (buildSize == 0) {
+            buildSize = Math.min(pageSize, GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE));
+            pending.sort((a, b) -> b.height - a.height);
+            firstPage = uploadedPages = pages.size();
+            placed = 0;
+        }
+
+        while (placed < pending.size()) {
+            place(pending.get(placed++));
+            if (System.nanoTime() - start >= budget)
+                return false;
+        }
+
+        //a page is only complete once every region is placed
+        while (uploadedPages < pages.size()) {
+            upload(pages.get(uploadedPages), buffers.get(uploadedPages - firstPage));
+            uploadedPages++;
+            if (System.nanoTime() - start >= budget && uploadedPages < pages.size())
+                return false;
+        }
+
+        final int size = buildSize;
+        buffers.clear();
+        pending.clear();
+        buildSize = 0;
+        //keys hold the decoded pixels, so duplicates are only merged within one build
+        regionMap.clear();
+
+        PyEngine.err.println(String.format("Texture atlas: %d page(s) of %dx%d, %d image(s), %d duplicate(s), %.2f%% filled",
+                pages.size(), size, size, imageCount, duplicateCount, getOccupancy() * 100));
+        return true;
+    }
+
+    private static void place(Region region) {
+        forget(region);
+        final int size = buildSize;
+        int width = region.width + PADDING * 2;
+        int height = region.height + PADDING * 2;
+        if (width > size || height > size) {
+            buildStandalone(region);
+            return;
+        }
+
+        int[] position = null;
+        int page;
+        for (page = firstPage; page < pages.size(); page++) {
+            if ((position = pages.get(page).packer.insert(width, height)) != null)
+                break;
+        }
+        if (position == null) {
+            pages.add(new Page(size));
+            buffers.add(clear(BufferPool.acquire(size * size * 4)));
+            position = pages.get(page).packer.insert(width, height);
+        }
+
+        region.x = position[0] + PADDING;
+        region.y = position[1] + PADDING;
+        blit(buffers.get(page - firstPage), size, region.image, region.x, region.y);
+        region.image.release();
+        region.image = null;
+        pages.get(page).regions.add(region);
+        region.u = region.x / (float) size;
+        region.v = region.y / (float) size;
+        region.uWidth = region.width / (float) size;
+        region.vHeight = region.height / (float) size;
+        imageArea += (long) region.width * region.height;
+    }
+
+    private static void upload(Page page, ByteBuffer buffer) {
+        final int size = page.packer.getWidth();
+        boolean reloadable = true;
+        for (Region region : page.regions)
+            reloadable &= region.source != null;
+        if (reloadable) {
+            page.texture = TextureManager.create(size, size, page::reload);
+            //pages past the budget are left for the first room that needs them
+            if (TextureManager.fits(page.texture.getBytes()))
+                page.texture.setResident(Loader.loadTexture(buffer, size, size, GL12.GL_CLAMP_TO_EDGE));
+        } else {
+            page.texture = TextureManager.create(Loader.loadTexture(buffer, size, size, GL12.GL_CLAMP_TO_EDGE), size, size);
+        }
+        BufferPool.release(buffer);
+        for (Region region : page.regions)
+            region.texture = page.texture;
+    }
+
+    //the key reads the pixels, it has to go before they are released
+    private static void forget(Region region) {
+        regionMap.remove(region.key);
+        region.key = null;
+    }
+
+    private static void buildStandalone(Region region) {
+        final Supplier<ImageData> source = region.source;
+        final ImageData image = region.image;
+        region.image = null;
+        if (source == null) {
+            region.texture = TextureManager.create(Loader.loadTexture(image, GL14.GL_MIRRORED_REPEAT), region.width, region.height);
+            return;
+        }
+        region.texture = TextureManager.create(region.width, region.height, () -> Loader.loadTexture(source.get(), GL14.GL_MIRRORED_REPEAT));
+        if (TextureManager.fits(region.texture.getBytes()))
+            region.texture.setResident(Loader.loadTexture(image, GL14.GL_MIRRORED_REPEAT));
+        else
+            image.release();
+    }
+
+    private static void blit(ByteBuffer page, int size, ImageData image, int x, int y) {
+        final IntBuffer source = image.asIntBuffer();
+        final IntBuffer target = page.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        final int width = image.width;
+        final int height = image.height;
+        for (int row = -PADDING; row < height + PADDING; row++) {
+            int sourceRow = Math.min(Math.max(row, 0), height - 1) * width;
+            int targetRow = (y + row) * size + x;
+            source.limit(sourceRow + width).position(sourceRow);
+            target.position(targetRow);
+            target.put(source);
+            //extrude the edge columns so linear filtering does not bleed in the neighbours
+            for (int i = 1; i <= PADDING; i++) {
+                target.put(targetRow - i, source.get(sourceRow));
+                target.put(targetRow + width - 1 + i, source.get(sourceRow + width - 1));
+            }
+        }
+    }
+
+    //pooled buffers come back dirty, the space between regions has to stay transparent
+    private static ByteBuffer clear(ByteBuffer buffer) {
+        while (buffer.remaining() >= 8)
+            buffer.putLong(0);
+        while (buffer.hasRemaining())
+            buffer.put((byte) 0);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads the pixels of a region back from its texture as packed ARGB ints, rows top down.
+     */
+    static int[] readPixels(Region region, int width, int height) {
+        return Loader.loadPixelsFromTexture(region.texture.use(), region.u, region.v, width, height);
+    }
+
+    static int getPageCount() {
+        return pages.size();
+    }
+
+    static float getOccupancy() {
+        if (pages.isEmpty())
+            return 0;
+        long pageArea = 0;
+        for (Page page : pages)
+            pageArea += (long) page.packer.getWidth() * page.packer.getHeight();
+        return imageArea / (float) pageArea;
+    }
+
+    private static class Page {
+        final AtlasPacker packer;
+        final List<Region> regions = new ArrayList<>();
+        TextureManager.Texture texture;
+
+        Page(int size) {
+            packer = new AtlasPacker(size, size);
+        }
+
+        //decodes every region again into the same places
+        int reload() {
+            final int size = packer.getWidth();
+            final ByteBuffer buffer = clear(BufferPool.acquire(size * size * 4));
+            for (Region region : regions) {
+                ImageData image = region.source.get();
+                blit(buffer, size, image, region.x, region.y);
+                image.release();
+            }
+            int textureID = Loader.loadTexture(buffer, size, size, GL12.GL_CLAMP_TO_EDGE);
+            BufferPool.release(buffer);
+            return textureID;
+        }
+    }
+
+    static class Region {
+        TextureManager.Texture texture;
+
+        int width;
+        int height;
+
+        //position in the page, in pixels
+        int x = 0;
+        int y = 0;
+
+        float u = 0;
+        float v = 0;
+        float uWidth = 1;
+        float vHeight = 1;
+
+        private ImageData image;
+        private Supplier<ImageData> source;
+        private ImageKey key;
+
+        Region(TextureManager.Texture texture) {
+            this.texture = texture;
+        }
+    }
+
+    private static class ImageKey {
+        private final int width;
+        private final int height;
+        private final IntBuffer pixels;
+        private final int hash;
+
+        private ImageKey(ImageData image) {
+            this.width = image.width;
+            this.height = image.height;
+            this.pixels = image.asIntBuffer();
+            this.hash = 31 * (31 * width + height) + pixels.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ImageKey))
+                return false;
+            ImageKey other = (ImageKey) obj;
+            return hash == other.hash && width == other.width && height == other.height && pixels.equals(other.pixels);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class TextureManager {
+
+    //bytes that may stay resident in total, textures a live room references are never evicted
+    static long budget = 256L * 1024 * 1024;
+
+    static final Texture NONE = wrap(0);
+
+    private static final List<Texture> textures = new ArrayList<>();
+    //resident textures no live room references, least recently used first
+    private static final LinkedHashSet<Texture> unused = new LinkedHashSet<>();
+
+    private static long residentBytes = 0;
+    private static int loads = 0;
+    private static int evictions = 0;
+    private static int stalls = 0;
+    private static long stallTime = 0;
+    private static long frame = 0;
+
+    /**
+     * A managed texture that starts out unloaded, the loader uploads it and returns the gl id.
+     */
+    static Texture create(int width, int height, IntSupplier loader) {
+        Texture result = new Texture(width, height, loader, true);
+        textures.add(result);
+        return result;
+    }
+
+    /**
+     * An owned texture that can not be reloaded, so it stays resident until {@link #clear}.
+     */
+    static Texture create(int textureID, int width, int height) {
+        Texture result = new Texture(width, height, null, true);
+        textures.add(result);
+        result.setResident(textureID);
+        return result;
+    }
+
+    /**
+     * A texture owned by someone else, like a render target, it is neither counted nor deleted.
+     */
+    static Texture wrap(int textureID) {
+        Texture result = new Texture(0, 0, null, false);
+        result.textureID = textureID;
+        return result;
+    }
+
+    static boolean fits(long bytes) {
+        return residentBytes + bytes <= budget;
+    }
+
+    static void acquire(Collection<Texture> set) {
+        for (Texture texture : set) {
+            texture.references++;
+            unused.remove(texture);
+            if (!texture.isResident()) {
+                texture.load();
+                loads++;
+            }
+        }
+    }
+
+    static void release(Collection<Texture> set) {
+        for (Texture texture : set) {
+            if (--texture.references == 0 && texture.isResident())
+                unused.add(texture);
+        }
+        trim();
+    }
+
+    static void trim() {
+        Iterator<Texture> iterator = unused.iterator();
+        while (residentBytes > budget && iterator.hasNext()) {
+            Texture texture = iterator.next();
+            //used this frame, it is probably still on screen
+            if (texture.lastUsed == frame)
+                continue;
+            iterator.remove();
+            texture.evict();
+            evictions++;
+        }
+    }
+
+    static void endFrame() {
+        trim();
+        frame++;
+    }
+
+    static void clear() {
+        for (Texture texture : textures)
+            if (texture.isResident())
+                GLState.deleteTexture(texture.textureID);
+        textures.clear();
+        unused.clear();
+        residentBytes = 0;
+    }
+
+    static long getResidentBytes() {
+        return residentBytes;
+    }
+
+    static int getLoads() {
+        return loads;
+    }
+
+    static int getEvictions() {
+        return evictions;
+    }
+
+    static int getStalls() {
+        return stalls;
+    }
+
+    static long getStallTime() {
+        return stallTime;
+    }
+
+    static class Texture {
+        private final int width;
+        private final int height;
+        private final IntSupplier loader;
+        private final boolean owned;
+
+        private int textureID = 0;
+        private int references = 0;
+        private long lastUsed = -1;
+
+        private Texture(int width, int height, IntSupplier loader, boolean owned) {
+            this.width = width;
+            this.height = height;
+            this.loader = loader;
+            this.owned = owned;
+        }
+
+        /**
+         * Returns the gl id for drawing, a texture no room asked for is loaded on the spot.
+         */
+        int use() {
+            if (textureID == 0 && loader != null) {
+                long start = System.nanoTime();
+                load();
+                stalls++;
+                stallTime += System.nanoTime() - start;
+            }
+            if (lastUsed != frame) {
+                lastUsed = frame;
+                //move to the most recently used end
+                if (references == 0 && unused.remove(this))
+                    unused.add(this);
+            }
+            return textureID;
+        }
+
+        boolean isResident() {
+            return textureID != 0;
+        }
+
+        long getBytes() {
+            return (long) width * height * 4;
+        }
+
+        void setResident(int textureID) {
+            this.textureID = textureID;
+            if (owned)
+                residentBytes += getBytes();
+            if (references == 0 && loader != null)
+                unused.add(this);
+        }
+
+        private void load() {
+            setResident(loader.getAsInt());
+        }
+
+        private void evict() {
+            GLState.deleteTexture(textureID);
+            textureID = 0;
+            residentBytes -= getBytes();
+        }
+    }
+}
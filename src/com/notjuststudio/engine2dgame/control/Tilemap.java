@@ -0,0 +1,168 @@
+package com.notjuststudio.engine2dgame.control;
+
+import com.notjuststudio.engine2dgame.util.Container;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class Tilemap {
+
+    //tiles per chunk side, a chunk is one vertex buffer and one draw
+    static final int CHUNK_SIZE = 32;
+
+    private static final FloatBuffer vertices = BufferUtils.createFloatBuffer(CHUNK_SIZE * CHUNK_SIZE * 16);
+
+    final Sprite tileset;
+    final float depth;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] tiles;
+
+    private final int chunkColumns;
+    private final int chunkRows;
+    private final Chunk[] chunks;
+
+    Tilemap(Container.Tilemap template) {
+        tileset = Sprite.getSprite(template.tileset);
+        depth = template.depth;
+        tileWidth = template.tileWidth;
+        tileHeight = template.tileHeight;
+        columns = template.columns;
+        rows = template.rows;
+        //the template is shared by every visit to the room
+        tiles = template.tiles.clone();
+        chunkColumns = (columns + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkRows = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunks = new Chunk[chunkColumns * chunkRows];
+    }
+
+    int getTile(int column, int row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows)
+            return -1;
+        return tiles[row * columns + column];
+    }
+
+    void setTile(int column, int row, int tile) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows)
+            return;
+        int index = row * columns + column;
+        if (tiles[index] == tile)
+            return;
+        tiles[index] = tile;
+        Chunk chunk = chunks[(row / CHUNK_SIZE) * chunkColumns + column / CHUNK_SIZE];
+        if (chunk != null)
+            chunk.dirty = true;
+    }
+
+    /**
+     * Draws the chunks under the current camera, the tile shader has to be bound.
+     */
+    void render(float x, float y, int width, int height) {
+        if (tileset == null || chunks.length == 0)
+            return;
+        final float chunkWidth = CHUNK_SIZE * tileWidth;
+        final float chunkHeight = CHUNK_SIZE * tileHeight;
+        int minColumn = Math.max(0, (int) Math.floor(x / chunkWidth));
+        int minRow = Math.max(0, (int) Math.floor(y / chunkHeight));
+        int maxColumn = Math.min(chunkColumns - 1, (int) Math.floor((x + width) / chunkWidth));
+        int maxRow = Math.min(chunkRows - 1, (int) Math.floor((y + height) / chunkHeight));
+        if (minColumn > maxColumn || minRow > maxRow)
+            return;
+        GLState.bindTexture(tileset.region.texture.use());
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                Chunk chunk = chunks[row * chunkColumns + column];
+                if (chunk == null)
+                    chunks[row * chunkColumns + column] = chunk = new Chunk(column, row);
+                if (chunk.dirty)
+                    build(chunk);
+                if (chunk.count == 0)
+                    continue;
+                Loader.bindVao(chunk.vaoID);
+                GL11.glDrawElements(GL11.GL_TRIANGLES, chunk.count * 6, GL11.GL_UNSIGNED_INT, 0);
+            }
+        }
+    }
+
+    private void build(Chunk chunk) {
+        final TextureAtlas.Region region = tileset.region;
+        final int setColumns = Math.max(1, tileset.getWidth() / tileWidth);
+        final int setRows = Math.max(1, tileset.getHeight() / tileHeight);
+        final float tileU = region.uWidth * tileWidth / tileset.getWidth();
+        final float tileV = region.vHeight * tileHeight / tileset.getHeight();
+        //half a texel in, so filtering does not pick up the neighbouring tile
+        final float insetU = region.uWidth / tileset.getWidth() / 2;
+        final float insetV = region.vHeight / tileset.getHeight() / 2;
+
+        vertices.clear();
+        int count = 0;
+        int maxRow = Math.min(rows, (chunk.row + 1) * CHUNK_SIZE);
+        int maxColumn = Math.min(columns, (chunk.column + 1) * CHUNK_SIZE);
+        for (int row = chunk.row * CHUNK_SIZE; row < maxRow; row++) {
+            for (int column = chunk.column * CHUNK_SIZE; column < maxColumn; column++) {
+                int tile = tiles[row * columns + column];
+                if (tile < 0 || tile >= setColumns * setRows)
+                    continue;
+                float left = column * tileWidth;
+                float bottom = row * tileHeight;
+                float right = left + tileWidth;
+                float top = bottom + tileHeight;
+                float u = region.u + (tile % setColumns) * tileU + insetU;
+                float v = region.v + (tile / setColumns) * tileV + insetV;
+                float uRight = u + tileU - insetU * 2;
+                float vBottom = v + tileV - insetV * 2;
+                vertices.put(left).put(top).put(u).put(v);
+                vertices.put(right).put(top).put(uRight).put(v);
+                vertices.put(left).put(bottom).put(u).put(vBottom);
+                vertices.put(right).put(bottom).put(uRight).put(vBottom);
+                count++;
+            }
+        }
+        vertices.flip();
+
+        if (count > 0) {
+            if (chunk.vaoID == 0) {
+                int[] result = Loader.createQuadVAO(count);
+                chunk.vaoID = result[0];
+                chunk.vboID = result[1];
+            }
+            chunk.capacity = Math.max(chunk.capacity, count);
+            Loader.updateQuadData(chunk.vboID, chunk.capacity, vertices);
+        }
+        chunk.count = count;
+        chunk.dirty = false;
+    }
+
+    void clear() {
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = chunks[i];
+            if (chunk != null && chunk.vaoID != 0) {
+                GLState.deleteVao(chunk.vaoID);
+                GL15.glDeleteBuffers(chunk.vboID);
+            }
+            chunks[i] = null;
+        }
+    }
+
+    private static class Chunk {
+        private final int column;
+        private final int row;
+        private int vaoID = 0;
+        private int vboID = 0;
+        private int capacity = 0;
+        private int count = 0;
+        private boolean dirty = true;
+
+        private Chunk(int column, int row) {
+            this.column = column;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.notjuststudio.engine2dgame.control;
+
+import java.util.Arrays;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class Track {
+
+    final String key;
+    //-1 uses the interpolation of the clip
+    int interpolation = -1;
+
+    //sorted by time, a time is there once
+    private float[] times = new float[4];
+    private float[] values = new float[4];
+    private int count = 0;
+
+    Track(String key) {
+        this.key = key;
+    }
+
+    void add(float time, float value) {
+        int index = Arrays.binarySearch(times, 0, count, time);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        index = -index - 1;
+        if (count == times.length) {
+            times = Arrays.copyOf(times, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+        }
+        System.arraycopy(times, index, times, index + 1, count - index);
+        System.arraycopy(values, index, values, index + 1, count - index);
+        times[index] = time;
+        values[index] = value;
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Segment the time is in, -1 before the first key and the last key after it.
+     * The cursor is the segment of the previous sample, playing forward stays on it or moves to the next one.
+     */
+    int find(float time, int cursor) {
+        if (time <= times[0])
+            return -1;
+        if (time >= times[count - 1])
+            return count - 1;
+        if (cursor >= 0 && cursor < count - 1 && times[cursor] <= time) {
+            if (time < times[cursor + 1])
+                return cursor;
+            if (cursor + 2 < count && time < times[cursor + 2])
+                return cursor + 1;
+        }
+        //a seek or a loop back
+        int index = Arrays.binarySearch(times, 0, count, time);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    float sample(int segment, float time, int interpolation) {
+        if (segment < 0)
+            return values[0];
+        if (segment >= count - 1)
+            return values[count - 1];
+        final int i = segment;
+        final float t = (time - times[i]) / (times[i + 1] - times[i]);
+        switch (interpolation) {
+            case AnimationClip.STEP:
+                return values[i];
+            case AnimationClip.CUBIC:
+                return hermite(i, t);
+            default:
+                return values[i] + (values[i + 1] - values[i]) * ease(interpolation, t);
+        }
+    }
+
+    //catmull-rom tangents, the end keys use the slope of their segment
+    private float hermite(int i, float t) {
+        final float p0 = values[i];
+        final float p1 = values[i + 1];
+        final float dt = times[i + 1] - times[i];
+        final float m0 = i > 0 ? (p1 - values[i - 1]) / (times[i + 1] - times[i - 1]) * dt : p1 - p0;
+        final float m1 = i + 2 < count ? (values[i + 2] - p0) / (times[i + 2] - times[i]) * dt : p1 - p0;
+        final float t2 = t * t;
+        final float t3 = t2 * t;
+        return (2 * t3 - 3 * t2 + 1) * p0 + (t3 - 2 * t2 + t) * m0 + (-2 * t3 + 3 * t2) * p1 + (t3 - t2) * m1;
+    }
+
+    static float ease(int type, float t) {
+        switch (type) {
+            case AnimationClip.EASE_IN:
+                return t * t;
+            case AnimationClip.EASE_OUT:
+                return t * (2 - t);
+            case AnimationClip.EASE_IN_OUT:
+                return t < 0.5f ? 2 * t * t : -1 + (4 - 2 * t) * t;
+            case AnimationClip.EASE_IN_CUBIC:
+                return t * t * t;
+            case AnimationClip.EASE_OUT_CUBIC: {
+                final float u = t - 1;
+                return u * u * u + 1;
+            }
+            case AnimationClip.EASE_IN_OUT_CUBIC: {
+                if (t < 0.5f)
+                    return 4 * t * t * t;
+                final float u = 2 * t - 2;
+                return u * u * u / 2 + 1;
+            }
+            case AnimationClip.EASE_IN_OUT_SINE:
+                return (float) (1 - Math.cos(Math.PI * t)) / 2;
+            default:
+                return t;
+        }
+    }
+}
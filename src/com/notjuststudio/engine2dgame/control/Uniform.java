@@ -0,0 +1,58 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+abstract class Uniform {
+
+    private static int issued = 0;
+    private static int skipped = 0;
+    private static int lastIssued = 0;
+    private static int lastSkipped = 0;
+
+    final String name;
+    int location = -1;
+    private boolean loaded = false;
+
+    Uniform(String name) {
+        this.name = name;
+    }
+
+    void resolve(int programID) {
+        location = GL20.glGetUniformLocation(programID, name);
+        loaded = false;
+    }
+
+    /**
+     * Counts the upload and tells whether the GL call is needed.
+     * The last value is kept per program, so a handle may skip only its own repeats.
+     */
+    boolean needUpload(boolean changed) {
+        if (changed || !loaded) {
+            loaded = true;
+            issued++;
+            return true;
+        }
+        skipped++;
+        return false;
+    }
+
+    abstract void loadObject(Object value);
+
+    static void resetCounters() {
+        lastIssued = issued;
+        lastSkipped = skipped;
+        issued = 0;
+        skipped = 0;
+    }
+
+    static int getIssued() {
+        return lastIssued;
+    }
+
+    static int getSkipped() {
+        return lastSkipped;
+    }
+}
@@ -0,0 +1,27 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class UniformBool extends Uniform {
+
+    private boolean value;
+
+    UniformBool(String name) {
+        super(name);
+    }
+
+    void load(boolean value) {
+        if (needUpload(this.value != value)) {
+            this.value = value;
+            GL20.glUniform1i(location, value ? 1 : 0);
+        }
+    }
+
+    @Override
+    void loadObject(Object value) {
+        load((Boolean) value);
+    }
+}
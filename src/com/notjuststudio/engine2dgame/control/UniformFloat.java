@@ -0,0 +1,27 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class UniformFloat extends Uniform {
+
+    private float value;
+
+    UniformFloat(String name) {
+        super(name);
+    }
+
+    void load(float value) {
+        if (needUpload(this.value != value)) {
+            this.value = value;
+            GL20.glUniform1f(location, value);
+        }
+    }
+
+    @Override
+    void loadObject(Object value) {
+        load((Float) value);
+    }
+}
@@ -0,0 +1,41 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.util.vector.Matrix3f;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class UniformMat3 extends Uniform {
+
+    private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(9);
+
+    private final Matrix3f value = new Matrix3f();
+
+    UniformMat3(String name) {
+        super(name);
+    }
+
+    void load(Matrix3f value) {
+        if (needUpload(!equals(this.value, value))) {
+            this.value.load(value);
+            value.store(buffer);
+            buffer.flip();
+            GL20.glUniformMatrix3(location, false, buffer);
+        }
+    }
+
+    private static boolean equals(Matrix3f a, Matrix3f b) {
+        return a.m00 == b.m00 && a.m01 == b.m01 && a.m02 == b.m02 &&
+                a.m10 == b.m10 && a.m11 == b.m11 && a.m12 == b.m12 &&
+                a.m20 == b.m20 && a.m21 == b.m21 && a.m22 == b.m22;
+    }
+
+    @Override
+    void loadObject(Object value) {
+        load((Matrix3f) value);
+    }
+}
@@ -0,0 +1,33 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.util.vector.Vector2f;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class UniformVec2 extends Uniform {
+
+    private float x, y;
+
+    UniformVec2(String name) {
+        super(name);
+    }
+
+    void load(float x, float y) {
+        if (needUpload(this.x != x || this.y != y)) {
+            this.x = x;
+            this.y = y;
+            GL20.glUniform2f(location, x, y);
+        }
+    }
+
+    void load(Vector2f value) {
+        load(value.x, value.y);
+    }
+
+    @Override
+    void loadObject(Object value) {
+        load((Vector2f) value);
+    }
+}
@@ -0,0 +1,44 @@
+package com.notjuststudio.engine2dgame.control;
+
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.util.vector.Vector4f;
+
+import java.awt.*;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+class UniformVec4 extends Uniform {
+
+    private float x, y, z, w;
+
+    UniformVec4(String name) {
+        super(name);
+    }
+
+    void load(float x, float y, float z, float w) {
+        if (needUpload(this.x != x || this.y != y || this.z != z || this.w != w)) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.w = w;
+            GL20.glUniform4f(location, x, y, z, w);
+        }
+    }
+
+    void load(Vector4f value) {
+        load(value.x, value.y, value.z, value.w);
+    }
+
+    void load(Color color) {
+        load(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+    }
+
+    @Override
+    void loadObject(Object value) {
+        if (value instanceof Color)
+            load((Color) value);
+        else
+            load((Vector4f) value);
+    }
+}
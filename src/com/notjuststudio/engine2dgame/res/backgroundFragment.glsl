@@ -2,6 +2,7 @@
 
 in vec2 textureCoords;
 
+uniform vec2 offset;
 uniform vec2 scale;
 uniform sampler2D background;
 
@@ -9,7 +10,7 @@ out vec4 out_Color;
 
 void main() {
 
-    vec4 color = texture(background, vec2(textureCoords.x * scale.x, textureCoords.y * scale.y));
+    vec4 color = texture(background, offset + textureCoords * scale);
 
     out_Color = color;
 
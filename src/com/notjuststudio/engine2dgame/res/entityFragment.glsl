@@ -1,6 +1,7 @@
 #version 330
 
 in vec2 textureCoords;
+in float passAlpha;
 
 uniform sampler2D guiTexture;
 
@@ -8,6 +9,7 @@ out vec4 out_Color;
 
 void main() {
 
-    out_Color = texture(guiTexture,textureCoords);
+    vec4 color = texture(guiTexture,textureCoords);
+    out_Color = vec4(color.rgb, color.a * passAlpha);
 
 }
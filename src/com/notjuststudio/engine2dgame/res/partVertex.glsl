@@ -1,14 +1,41 @@
 #version 330
 
-in vec2 vertexPos;
+layout(location = 0) in vec2 vertexPos;
+layout(location = 1) in vec4 instanceTransform;
+layout(location = 2) in vec4 instanceSize;
+layout(location = 3) in vec4 instanceUV;
+layout(location = 4) in vec4 instanceScale;
 
 uniform mat3 transformationMatrix;
 
+uniform bool instanced;
+uniform mat3 viewMatrix;
+
 out vec2 textureCoords;
+out float passAlpha;
 
 void main() {
 
-       gl_Position = vec4((transformationMatrix * vec3(vertexPos, 1.0)).xy, 0.0, 1.0);
-       textureCoords = vec2(vertexPos.x / 2 + 0.5, 0.5 - vertexPos.y / 2);
+       vec2 coords = vec2(vertexPos.x / 2 + 0.5, 0.5 - vertexPos.y / 2);
+
+       if (instanced) {
+              //instanceTransform = (x, y, angle, alpha), instanceSize = (width, height, xOffset, yOffset)
+              //instanceUV = (u, v, width, height), instanceScale = (xScale, yScale, isFlipped, unused)
+              vec2 position = (vertexPos + 1.0 - instanceSize.zw * 2.0 / instanceSize.xy) * instanceScale.xy;
+              float c = cos(instanceTransform.z);
+              float s = sin(instanceTransform.z);
+              position = vec2(c * position.x - s * position.y, s * position.x + c * position.y);
+              position = instanceTransform.xy + position * instanceSize.xy / 2.0;
+              gl_Position = vec4((viewMatrix * vec3(position, 1.0)).xy, 0.0, 1.0);
+
+              if (instanceScale.z > 0.5)
+                     coords.y = 1.0 - coords.y;
+              textureCoords = instanceUV.xy + coords * instanceUV.zw;
+              passAlpha = instanceTransform.w;
+       } else {
+              gl_Position = vec4((transformationMatrix * vec3(vertexPos, 1.0)).xy, 0.0, 1.0);
+              textureCoords = coords;
+              passAlpha = 1.0;
+       }
 
 }
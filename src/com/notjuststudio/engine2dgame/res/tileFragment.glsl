@@ -8,6 +8,6 @@ out vec4 out_Color;
 
 void main() {
 
-    out_Color = texture(guiTexture,vec2(textureCoords.x, 1 - textureCoords.y));
+    out_Color = texture(guiTexture, textureCoords);
 
 }
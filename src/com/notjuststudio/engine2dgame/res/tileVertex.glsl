@@ -0,0 +1,15 @@
+#version 330
+
+layout(location = 0) in vec2 vertexPos;
+layout(location = 1) in vec2 vertexUV;
+
+uniform mat3 viewMatrix;
+
+out vec2 textureCoords;
+
+void main() {
+
+       gl_Position = vec4((viewMatrix * vec3(vertexPos, 1.0)).xy, 0.0, 1.0);
+       textureCoords = vertexUV;
+
+}
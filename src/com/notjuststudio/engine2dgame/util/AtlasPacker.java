@@ -0,0 +1,113 @@
+package com.notjuststudio.engine2dgame.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class AtlasPacker {
+
+    private final int width;
+    private final int height;
+
+    //skyline segments {x, y, width}, sorted by x and covering the whole page width
+    private final List<int[]> skyline = new ArrayList<>();
+
+    private long usedArea = 0;
+
+    public AtlasPacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        skyline.add(new int[]{0, 0, width});
+    }
+
+    public int[] insert(int width, int height) {
+        int bestIndex = -1;
+        int bestX = 0;
+        int bestY = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+
+        for (int i = 0; i < skyline.size(); i++) {
+            int y = fit(i, width, height);
+            if (y < 0)
+                continue;
+            int[] segment = skyline.get(i);
+            if (y < bestY || (y == bestY && segment[2] < bestWidth)) {
+                bestIndex = i;
+                bestX = segment[0];
+                bestY = y;
+                bestWidth = segment[2];
+            }
+        }
+
+        if (bestIndex == -1)
+            return null;
+
+        addSegment(bestIndex, bestX, bestY + height, width);
+        usedArea += (long) width * height;
+        return new int[]{bestX, bestY};
+    }
+
+    private int fit(int index, int width, int height) {
+        int x = skyline.get(index)[0];
+        if (x + width > this.width)
+            return -1;
+        int y = 0;
+        int left = width;
+        for (int i = index; left > 0; i++) {
+            int[] segment = skyline.get(i);
+            y = Math.max(y, segment[1]);
+            if (y + height > this.height)
+                return -1;
+            left -= segment[2];
+        }
+        return y;
+    }
+
+    private void addSegment(int index, int x, int y, int width) {
+        skyline.add(index, new int[]{x, y, width});
+
+        //cut the segments that are now under the new one
+        for (int i = index + 1; i < skyline.size(); i++) {
+            int[] current = skyline.get(i);
+            int[] previous = skyline.get(i - 1);
+            int shrink = previous[0] + previous[2] - current[0];
+            if (shrink <= 0)
+                break;
+            current[0] += shrink;
+            current[2] -= shrink;
+            if (current[2] > 0)
+                break;
+            skyline.remove(i);
+            i--;
+        }
+
+        //merge neighbours of the same height
+        for (int i = 0; i < skyline.size() - 1; i++) {
+            int[] current = skyline.get(i);
+            int[] next = skyline.get(i + 1);
+            if (current[1] == next[1]) {
+                current[2] += next[2];
+                skyline.remove(i + 1);
+                i--;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getUsedArea() {
+        return usedArea;
+    }
+
+    public float getOccupancy() {
+        return usedArea / (float) ((long) width * height);
+    }
+}
@@ -0,0 +1,61 @@
+package com.notjuststudio.engine2dgame.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class BufferPool {
+
+    //released buffers above this total are left to the garbage collector
+    public static long maxPooledBytes = 64L * 1024 * 1024;
+
+    private static final int BUCKETS = 31;
+
+    //bucket i holds direct buffers with a capacity of 2^i bytes
+    @SuppressWarnings("unchecked")
+    private static final Queue<ByteBuffer>[] buckets = new Queue[BUCKETS];
+    private static final AtomicLong pooledBytes = new AtomicLong();
+
+    static {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Returns a cleared direct buffer in native order, limited to the requested size.
+     */
+    public static ByteBuffer acquire(int size) {
+        int bucket = bucket(size);
+        ByteBuffer buffer = bucket < BUCKETS ? buckets[bucket].poll() : null;
+        if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(bucket < BUCKETS ? 1 << bucket : size);
+        else
+            pooledBytes.addAndGet(-buffer.capacity());
+        buffer.clear();
+        buffer.limit(size);
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || Integer.bitCount(buffer.capacity()) != 1)
+            return;
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+        buckets[bucket(buffer.capacity())].add(buffer);
+    }
+
+    public static long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int bucket(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
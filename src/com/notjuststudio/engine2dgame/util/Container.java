@@ -3,7 +3,12 @@ package com.notjuststudio.engine2dgame.util;
 import com.notjuststudio.fpnt.FPNTContainer;
 import com.sun.istack.internal.NotNull;
 
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Created by George on 27.06.2017.
@@ -15,7 +20,8 @@ public class Container extends FPNTContainer {
             COLLISION = "c",
             STRETCHED = "s",
             VISIBLE = "v",
-            USING_VIEWS = "u";
+            USING_VIEWS = "u",
+            STATIC = "f";
 
     //Int
     public static final String
@@ -66,6 +72,70 @@ public class Container extends FPNTContainer {
         return (List<View>)getValue(Expander.ROOM_VIEW, key);
     }
 
+    public Container putTilemapList(@NotNull final String key, @NotNull final List<Tilemap> list) {
+        return (Container)putValue(Expander.ROOM_TILEMAP, key, list);
+    }
+
+    public List<Tilemap> getTilemapList(@NotNull final String key) {
+        //older rooms have no tilemap block
+        final Map<String, Object> map = getMaps().get(Expander.ROOM_TILEMAP);
+        return map == null ? null : (List<Tilemap>)map.get(key);
+    }
+
+    public Container putPng(@NotNull final String key, @NotNull final byte[] data) {
+        return (Container)putValue(Expander.IMAGE_PNG, key, data);
+    }
+
+    public byte[] getPng(@NotNull final String key) {
+        //older files have no png block at all
+        final Map<String, Object> map = getMaps().get(Expander.IMAGE_PNG);
+        return map == null ? null : (byte[])map.get(key);
+    }
+
+    /**
+     * Pixels of an image entry, decoded without a {@link java.awt.image.BufferedImage} when it is stored as a png block.
+     * The caller owns the returned data and should release it after the upload.
+     */
+    public ImageData getImageData(@NotNull final String key) {
+        final byte[] png = getPng(key);
+        if (png != null)
+            return ImageLoader.loadPng(png);
+        final BufferedImage image = getBufferedImage(key);
+        return image == null ? null : ImageLoader.imageToData(image);
+    }
+
+    /**
+     * Decodes the image again on every call, holding only the png bytes and not the container.
+     * Null for an image without a png block, its texture can not be reloaded and has to stay resident.
+     */
+    public Supplier<ImageData> getImageSource(@NotNull final String key) {
+        final byte[] png = getPng(key);
+        return png == null ? null : () -> ImageLoader.loadPng(png);
+    }
+
+    /**
+     * Moves every {@link BufferedImage} entry into a png block, returns how many were moved.
+     */
+    public int convertImages() {
+        //put after the walk, the png block may not exist yet
+        final Map<String, byte[]> converted = new HashMap<>();
+        for (Map.Entry<Byte, Map<String, Object>> block : getMaps().entrySet()) {
+            if (block.getKey() == Expander.IMAGE_PNG)
+                continue;
+            final Iterator<Map.Entry<String, Object>> iterator = block.getValue().entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, Object> entry = iterator.next();
+                if (!(entry.getValue() instanceof BufferedImage))
+                    continue;
+                converted.put(entry.getKey(), ImageLoader.encodePng((BufferedImage) entry.getValue()));
+                iterator.remove();
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : converted.entrySet())
+            putPng(entry.getKey(), entry.getValue());
+        return converted.size();
+    }
+
     public static class Entity {
 
         public String id;
@@ -73,6 +143,18 @@ public class Container extends FPNTContainer {
 
     }
 
+    /**
+     * Tiles index the tileset sprite left to right, top to bottom, -1 is empty.
+     * They are stored row by row, row 0 at y = 0 of the room.
+     */
+    public static class Tilemap {
+
+        public String tileset;
+        public int tileWidth, tileHeight, columns, rows, depth;
+        public int[] tiles;
+
+    }
+
     public static class View {
 
         public int
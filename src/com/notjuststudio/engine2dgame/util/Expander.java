@@ -19,7 +19,9 @@ public class Expander implements FPNTExpander {
 
     public static final byte
             ROOM_ENTITY = 100,
-            ROOM_VIEW = 101;
+            ROOM_VIEW = 101,
+            IMAGE_PNG = 102,
+            ROOM_TILEMAP = 103;
 
     @Override
     public boolean write(OutputStream outputStream, byte b, int i, FPNTContainer fpntContainer) throws IOException {
@@ -55,6 +57,33 @@ public class Expander implements FPNTExpander {
                 }
                 return true;
             }
+            case IMAGE_PNG: {
+                for (Map.Entry<String, Object> entry : fpntContainer.getMaps().get(b).entrySet()) {
+                    FPNTDecoder.writeKey(outputStream, entry.getKey());
+                    final byte[] data = (byte[]) entry.getValue();
+                    outputStream.write(FPNTParser.parse(data.length));
+                    outputStream.write(data);
+                }
+                return true;
+            }
+            case ROOM_TILEMAP: {
+                for (Map.Entry<String, Object> entry : fpntContainer.getMaps().get(b).entrySet()) {
+                    FPNTDecoder.writeKey(outputStream, entry.getKey());
+                    final List<Container.Tilemap> list = (List<Container.Tilemap>) entry.getValue();
+                    outputStream.write(FPNTParser.parse(list.size()));
+                    for (Container.Tilemap tilemap : list) {
+                        FPNTDecoder.writeKey(outputStream, tilemap.tileset);
+                        outputStream.write(FPNTParser.parse(tilemap.tileWidth));
+                        outputStream.write(FPNTParser.parse(tilemap.tileHeight));
+                        outputStream.write(FPNTParser.parse(tilemap.columns));
+                        outputStream.write(FPNTParser.parse(tilemap.rows));
+                        outputStream.write(FPNTParser.parse(tilemap.depth));
+                        for (int tile : tilemap.tiles)
+                            outputStream.write(FPNTParser.parse(tile));
+                    }
+                }
+                return true;
+            }
             default:
                 return false;
         }
@@ -113,6 +142,61 @@ public class Expander implements FPNTExpander {
                 }
                 return true;
             }
+            case IMAGE_PNG: {
+                for (int i = 0; i < length; i++) {
+                    final String key = FPNTDecoder.readKey(inputStream);
+                    final byte[] count = new byte[4];
+                    inputStream.read(count);
+                    final byte[] data = new byte[FPNTParser.parseInt(count)];
+                    for (int read = 0; read < data.length; ) {
+                        final int result = inputStream.read(data, read, data.length - read);
+                        if (result < 0)
+                            throw new IOException("Unexpected end of png block");
+                        read += result;
+                    }
+                    ((Container)fpntContainer).putPng(key, data);
+                }
+                return true;
+            }
+            case ROOM_TILEMAP: {
+                for (int i = 0; i < length; i++) {
+                    final String key = FPNTDecoder.readKey(inputStream);
+                    final byte[] count = new byte[4];
+                    inputStream.read(count);
+                    final int size = FPNTParser.parseInt(count);
+                    final List<Container.Tilemap> list = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        final Container.Tilemap tilemap = new Container.Tilemap();
+                        tilemap.tileset = FPNTDecoder.readKey(inputStream);
+                        inputStream.read(count);
+                        tilemap.tileWidth = FPNTParser.parseInt(count);
+                        inputStream.read(count);
+                        tilemap.tileHeight = FPNTParser.parseInt(count);
+                        inputStream.read(count);
+                        tilemap.columns = FPNTParser.parseInt(count);
+                        inputStream.read(count);
+                        tilemap.rows = FPNTParser.parseInt(count);
+                        inputStream.read(count);
+                        tilemap.depth = FPNTParser.parseInt(count);
+                        //the tiles are read in one go, a map can hold a lot of them
+                        final byte[] data = new byte[tilemap.columns * tilemap.rows * 4];
+                        for (int read = 0; read < data.length; ) {
+                            final int result = inputStream.read(data, read, data.length - read);
+                            if (result < 0)
+                                throw new IOException("Unexpected end of tilemap block");
+                            read += result;
+                        }
+                        tilemap.tiles = new int[tilemap.columns * tilemap.rows];
+                        for (int k = 0; k < tilemap.tiles.length; k++) {
+                            System.arraycopy(data, k * 4, count, 0, 4);
+                            tilemap.tiles[k] = FPNTParser.parseInt(count);
+                        }
+                        list.add(tilemap);
+                    }
+                    ((Container)fpntContainer).putTilemapList(key, list);
+                }
+                return true;
+            }
             default:
                 return false;
         }
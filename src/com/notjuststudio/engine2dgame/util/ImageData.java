@@ -0,0 +1,52 @@
+package com.notjuststudio.engine2dgame.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Created by George on 18.10.2026.
+ */
+public class ImageData {
+
+    public final int width;
+    public final int height;
+
+    //tightly packed RGBA rows, top row first
+    private ByteBuffer pixels;
+
+    public ImageData(int width, int height, ByteBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Copies the pixels into packed ARGB ints, as {@link java.awt.image.BufferedImage#getRGB} returns them.
+     */
+    public int[] toArgb() {
+        int[] result = new int[width * height];
+        pixels.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer().get(result);
+        for (int i = 0; i < result.length; i++) {
+            int rgba = result[i];
+            result[i] = (rgba >>> 8) | (rgba << 24);
+        }
+        return result;
+    }
+
+    public IntBuffer asIntBuffer() {
+        return pixels.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Hands the pixel buffer back to the {@link BufferPool}, the data must not be used afterwards.
+     */
+    public void release() {
+        BufferPool.release(pixels);
+        pixels = null;
+    }
+}
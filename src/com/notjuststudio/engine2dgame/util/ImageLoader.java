@@ -17,24 +17,62 @@ import java.nio.ByteOrder;
  */
 public class ImageLoader {
 
-    public static ByteBuffer loadPng(String filePath) {
-        int width, height;
-        ByteBuffer buffer;
+    public static ImageData loadPng(String filePath) {
+        try (InputStream in = openStream(new File(filePath))) {
+            return loadPng(in);
+        } catch (IOException | NullPointerException e) {
+            System.err.println("Tried to load texture " + filePath + ", didn't work");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static ImageData loadPng(byte[] data) {
         try {
-            FileInputStream in = new FileInputStream(filePath);
-            PNGDecoder decoder = new PNGDecoder(in);
-            width = decoder.getWidth();
-            height = decoder.getHeight();
-            buffer = ByteBuffer.allocateDirect(4 * width * height);
-            decoder.decode(buffer, width * 4, PNGDecoder.Format.RGBA);
-            buffer.flip();
-            in.close();
+            return loadPng(new ByteArrayInputStream(data));
         } catch (IOException e) {
-            System.err.println("Tried to load texture " + filePath + ", didn't work");
             e.printStackTrace();
             return null;
         }
-        return buffer;
+    }
+
+    /**
+     * Decodes straight into a pooled direct buffer in RGBA order, no {@link BufferedImage} is built.
+     */
+    public static ImageData loadPng(InputStream in) throws IOException {
+        PNGDecoder decoder = new PNGDecoder(in);
+        int width = decoder.getWidth();
+        int height = decoder.getHeight();
+        ByteBuffer buffer = BufferPool.acquire(4 * width * height);
+        try {
+            decoder.decode(buffer, width * 4, PNGDecoder.Format.RGBA);
+        } catch (IOException | RuntimeException e) {
+            BufferPool.release(buffer);
+            throw e;
+        }
+        buffer.flip();
+        return new ImageData(width, height, buffer);
+    }
+
+    public static ImageData loadImageData(File file) {
+        if (file.getName().endsWith("png")) {
+            try (InputStream in = openStream(file)) {
+                if (in != null)
+                    return loadPng(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+        BufferedImage image = loadImage(file);
+        return image == null ? null : imageToData(image);
+    }
+
+    private static InputStream openStream(File file) throws IOException {
+        if (file.exists())
+            return new BufferedInputStream(new FileInputStream(file));
+        String path = file.getPath().replace('\\','/');
+        return Class.class.getResourceAsStream(path);
     }
 
     public static BufferedImage bufferToImage(ByteBuffer buffer, int width, int height) {
@@ -55,25 +93,41 @@ public class ImageLoader {
     }
 
     public static ByteBuffer imageToBuffer(BufferedImage image) {
-
-        int[] pixels = new int[image.getWidth() * image.getHeight()];
-        image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
-
         ByteBuffer buffer = ByteBuffer.allocateDirect(image.getWidth() * image.getHeight() * 4).order(ByteOrder.nativeOrder()); //4 for RGBA, 3 for RGB
+        putArgb(buffer, image);
+        return buffer;
+    }
 
-        for(int y = 0; y < image.getHeight(); y++){
-            for(int x = 0; x < image.getWidth(); x++){
-                int pixel = pixels[y * image.getWidth() + x];
-                buffer.put((byte) ((pixel >> 16) & 0xFF));     // Red component
-                buffer.put((byte) ((pixel >> 8) & 0xFF));      // Green component
-                buffer.put((byte) (pixel & 0xFF));               // Blue component
-                buffer.put((byte) ((pixel >> 24) & 0xFF));    // Alpha component. Only for RGBA
-            }
-        }
+    /**
+     * Fallback for images that only exist as {@link BufferedImage}, converted in bulk into a pooled buffer.
+     */
+    public static ImageData imageToData(BufferedImage image) {
+        ByteBuffer buffer = BufferPool.acquire(image.getWidth() * image.getHeight() * 4);
+        putArgb(buffer, image);
+        return new ImageData(image.getWidth(), image.getHeight(), buffer);
+    }
 
-        buffer.flip();
+    /**
+     * Encodes an image as png bytes, the form the loader decodes without a {@link BufferedImage}.
+     */
+    public static byte[] encodePng(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
 
-        return buffer;
+    private static void putArgb(ByteBuffer buffer, BufferedImage image) {
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            pixels[i] = (argb << 8) | (argb >>> 24);
+        }
+        //big endian ints lay the bytes out as R, G, B, A
+        buffer.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer().put(pixels);
     }
 
     public static BufferedImage resize(BufferedImage img, int newW, int newH) {
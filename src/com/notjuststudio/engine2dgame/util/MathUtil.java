@@ -39,4 +39,87 @@ public class MathUtil {
 
         return result;
     }
+
+    /**
+     * Mutable 2x3 affine transform laid out like the first two columns and the translation of {@link Matrix3f}.
+     * Built in closed form, so reusing one instance does not allocate.
+     */
+    public static class Affine2f {
+
+        public float
+                m00 = 1, m01 = 0,
+                m10 = 0, m11 = 1,
+                m20 = 0, m21 = 0;
+
+        private float angle = 0;
+        private float sin = 0;
+        private float cos = 1;
+
+        public Affine2f setIdentity() {
+            return setScale(1, 1);
+        }
+
+        public Affine2f setScale(float xScale, float yScale) {
+            m00 = xScale;
+            m01 = 0;
+            m10 = 0;
+            m11 = yScale;
+            m20 = 0;
+            m21 = 0;
+            return this;
+        }
+
+        /**
+         * Maps the room rectangle seen by a camera to normalized device coordinates.
+         */
+        public Affine2f setCamera(float x, float y, int width, int height) {
+            m00 = 2f / width;
+            m01 = 0;
+            m10 = 0;
+            m11 = 2f / height;
+            m20 = -x * m00 - 1;
+            m21 = -y * m11 - 1;
+            return this;
+        }
+
+        /**
+         * Same result as translation * scale(texture / room) * rotation * scale * translation(offset),
+         * the chain used by MasterRender for sprites and text.
+         */
+        public Affine2f set(float x, float y, float xScale, float yScale, float angle, int textureWidth, int textureHeight, int xOffset, int yOffset, float roomX, float roomY, int roomWidth, int roomHeight) {
+            if (angle != this.angle) {
+                this.angle = angle;
+                this.sin = (float) Math.sin(angle);
+                this.cos = (float) Math.cos(angle);
+            }
+
+            float a = textureWidth / (float) roomWidth;
+            float b = textureHeight / (float) roomHeight;
+
+            m00 = a * cos * xScale;
+            m01 = b * sin * xScale;
+            m10 = -a * sin * yScale;
+            m11 = b * cos * yScale;
+
+            float xShift = 1 - xOffset * 2f / textureWidth;
+            float yShift = 1 - yOffset * 2f / textureHeight;
+
+            m20 = (x - roomX) * 2 / roomWidth - 1 + m00 * xShift + m10 * yShift;
+            m21 = (y - roomY) * 2 / roomHeight - 1 + m01 * xShift + m11 * yShift;
+            return this;
+        }
+
+        public Matrix3f store(Matrix3f dest) {
+            dest.m00 = m00;
+            dest.m01 = m01;
+            dest.m02 = 0;
+            dest.m10 = m10;
+            dest.m11 = m11;
+            dest.m12 = 0;
+            dest.m20 = m20;
+            dest.m21 = m21;
+            dest.m22 = 1;
+            return dest;
+        }
+    }
 }